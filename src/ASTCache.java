@@ -0,0 +1,78 @@
+package miniJava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import miniJava.AbstractSyntaxTrees.ASTCodec;
+import miniJava.AbstractSyntaxTrees.Package;
+
+// Keeps the ASTs of sources that compiled cleanly in a directory, one file per
+//  source named after SourceBuffer.contentHash(), the SHA-256 of its bytes, so
+//  compiling the same content again can skip scanning and parsing.
+//
+// A file holds MAGIC followed by the tree as ASTCodec.encode() lays it out,
+//  with its own format version. ASTCodec.decode() builds the AST objects from it
+//  in one pass, so a hit costs less than scanning and parsing the source would.
+//  Anything that cannot be read back as a tree, whether another version, a file cut short or one that is not a cache file at all,
+//  counts as a miss, and is replaced by the next store(). A file is written
+//  under a temporary name and then moved into place, so a reader never sees a
+//  half-written entry.
+public final class ASTCache {
+	// "MJAC"
+	private static final int MAGIC = 0x4D4A4143;
+
+	private final Path _dir;
+
+	public ASTCache(Path dir) {
+		this._dir = dir;
+	}
+
+	// The tree stored for the content with this SourceBuffer.contentHash(), or null
+	public Package load(String hash) {
+		try {
+			byte[] in = Files.readAllBytes(_dir.resolve(hash + ".ast"));
+
+			if (in.length < 4 || ByteBuffer.wrap(in).getInt() != MAGIC) {
+				return null;
+			}
+
+			return ASTCodec.decode(in, 4);
+		} catch( IOException | RuntimeException e ) {
+			// No entry, or a damaged one
+			return null;
+		}
+	}
+
+	// Stores prog as the tree of the content with this hash. The cache is only
+	//  an optimization, so failing to write it is not an error.
+	public void store(String hash, Package prog) {
+		byte[] tree = ASTCodec.encode(prog);
+		ByteBuffer[] out = { ByteBuffer.allocate(4).putInt(0, MAGIC), ByteBuffer.wrap(tree) };
+
+		try {
+			Files.createDirectories(_dir);
+
+			Path temp = Files.createTempFile(_dir, "entry", ".tmp");
+
+			try {
+				try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+					while (out[1].hasRemaining()) {
+						channel.write(out);
+					}
+				}
+
+				Files.move(temp, _dir.resolve(hash + ".ast"),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch( IOException e ) {
+			// Leave the cache as it was
+		}
+	}
+}
@@ -9,19 +9,20 @@ import miniJava.SyntacticAnalyzer.SourcePosition;
 
 public abstract class AST {
 
-  public AST (SourcePosition posn) {
+  public AST (long posn) {
     this.posn = posn;
   }
   
   public String toString() {
       String fullClassName = this.getClass().getName();
       String cn = fullClassName.substring(1 + fullClassName.lastIndexOf('.'));
-      if (ASTDisplay.showPosition && posn != null)
-    	  cn = cn + " " + posn.toString();
+      if (ASTDisplay.showPosition && posn != SourcePosition.NONE)
+    	  cn = cn + " " + SourcePosition.toString(posn);
       return cn;
   }
 
   public abstract <A,R> R visit(Visitor<A,R> v, A o);
 
-  public SourcePosition posn;
+  // packed start offset and length, see SourcePosition
+  public long posn;
 }
@@ -0,0 +1,809 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+/*
+ * A whole AST packed into a few primitive arrays instead of one object per node
+ * plus an ArrayList per list.
+ *
+ * A node is an int index. Every node has a kind (which AST class it stands for),
+ * a packed SourcePosition, and a record in one shared int array. The record starts
+ * with a header whose size depends on the kind:
+ *
+ *   declarations   flags, name, b     flags: PRIVATE | STATIC of a member,
+ *                                        INCOMPLETE of a method
+ *                                     b: className, field count of a class,
+ *                                        or parameter count of a method
+ *   types          flags              the TypeKind
+ *   terminals      flags, name [, b]  the TokenType and the spelling, and for an
+ *                                     int literal its value
+ *
+ * and continues with the indices of the node's children. Lists are not nodes of
+ * their own: their elements are children of the owner, with a count in the header
+ * where the owner has more than one list. Names are stored once and referred to
+ * by index. Children are always encoded before their parent, so the root is the
+ * last node.
+ *
+ * The accessors are the flyweight view: kind(n), child(n, i), posn(n), name(n)
+ * and so on read straight from the arrays without creating anything.
+ * accept(n, visitor, arg) walks the arena the way AST.visit() walks objects,
+ * handing an ArenaVisitor node indices instead of nodes, so a pass written
+ * against ArenaVisitor never needs the objects at all. Visitors written against
+ * the AST classes, like Identification and TypeChecking, which also record what
+ * they find in the nodes, run on materialize(n), which builds ordinary AST
+ * objects for the subtree at n.
+ */
+public final class ASTArena {
+
+    // Children per kind, in order; "?" marks an optional child.
+    public enum Kind {
+        PACKAGE(0),            // classes...
+        CLASS_DECL(3),         // fields..., methods...
+        FIELD_DECL(3),         // type
+        METHOD_DECL(3),        // type, parameters..., statements...
+        PARAMETER_DECL(3),     // type
+        VAR_DECL(3),           // type
+        BASE_TYPE(1),          //
+        CLASS_TYPE(1),         // identifier
+        ARRAY_TYPE(1),         // element type
+        BLOCK_STMT(0),         // statements...
+        VARDECL_STMT(0),       // varDecl, initExp
+        ASSIGN_STMT(0),        // ref, val
+        IX_ASSIGN_STMT(0),     // ref, ix, exp
+        CALL_STMT(0),          // methodRef, arguments...
+        RETURN_STMT(0),        // returnExpr?
+        IF_STMT(0),            // cond, thenStmt, elseStmt?
+        WHILE_STMT(0),         // cond, body
+        UNARY_EXPR(0),         // operator, expr
+        BINARY_EXPR(0),        // operator, left, right
+        REF_EXPR(0),           // ref
+        IX_EXPR(0),            // ref, ixExpr
+        CALL_EXPR(0),          // functionRef, arguments...
+        LITERAL_EXPR(0),       // literal
+        NEW_OBJECT_EXPR(0),    // classtype
+        NEW_ARRAY_EXPR(0),     // eltType, sizeExpr
+        THIS_REF(0),           //
+        ID_REF(0),             // id
+        QUAL_REF(0),           // ref, id
+        IDENTIFIER(2),         //
+        OPERATOR(2),           //
+        INT_LITERAL(3),        //
+        BOOLEAN_LITERAL(2),    //
+        NULL_LITERAL(2);       //
+
+        // ints of header in front of the children
+        final int header;
+
+        Kind(int header) {
+            this.header = header;
+        }
+    }
+
+    public static final int NONE = -1;
+
+    public static final int PRIVATE = 1;
+    public static final int STATIC = 2;
+    public static final int INCOMPLETE = 4;
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final TypeKind[] TYPE_KINDS = TypeKind.values();
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private byte[] _kind;
+    private long[] _posn;
+    // node n's record is _data[_record[n], _record[n + 1])
+    private int[] _record;
+    private int _nodes;
+
+    private int[] _data;
+    private int _size;
+
+    private String[] _names;
+    private int _nameCount;
+    private final Map<String, Integer> _nameIndex = new HashMap<String, Integer>();
+
+    // what materialize() makes types with, so the subtrees it builds from one
+    // arena share them like the classes of one program
+    private final Types _types = new Types();
+
+    ASTArena(int nodes) {
+        int capacity = Math.max(16, nodes);
+
+        _kind = new byte[capacity];
+        _posn = new long[capacity];
+        _record = new int[capacity + 1];
+        _data = new int[capacity * 2];
+        _names = new String[64];
+    }
+
+    /**
+     * pack a parsed program into an arena
+     * @param prog  root of the AST, as returned by the Parser
+     */
+    public static ASTArena encode(Package prog) {
+        ASTArena arena = new ASTArena(1024);
+        new Encoder(arena).encode(prog);
+        arena.trim();
+        return arena;
+    }
+
+    // the flyweight view
+
+    public int size() {
+        return _nodes;
+    }
+
+    public int root() {
+        return _nodes - 1;
+    }
+
+    public Kind kind(int node) {
+        return KINDS[_kind[node]];
+    }
+
+    public long posn(int node) {
+        return _posn[node];
+    }
+
+    public int childCount(int node) {
+        return _record[node + 1] - _record[node] - kind(node).header;
+    }
+
+    public int child(int node, int i) {
+        return _data[_record[node] + kind(node).header + i];
+    }
+
+    public int flags(int node) {
+        return _data[_record[node]];
+    }
+
+    public TypeKind typeKind(int node) {
+        return TYPE_KINDS[flags(node)];
+    }
+
+    public TokenType tokenType(int node) {
+        return TOKEN_TYPES[flags(node)];
+    }
+
+    // declaration name, or the spelling of a terminal
+    public String name(int node) {
+        return string(_data[_record[node] + 1]);
+    }
+
+    // className of a field, parameter or variable
+    public String className(int node) {
+        return string(_data[_record[node] + 2]);
+    }
+
+    public int intValue(int node) {
+        return _data[_record[node] + 2];
+    }
+
+    // field count of a class, parameter count of a method
+    public int count(int node) {
+        return _data[_record[node] + 2];
+    }
+
+    public String string(int index) {
+        return index == NONE ? null : _names[index];
+    }
+
+    public int nameCount() {
+        return _nameCount;
+    }
+
+    /**
+     * call the visit method of v for the kind of node
+     */
+    public <A, R> R accept(int node, ArenaVisitor<A, R> v, A arg) {
+        switch (kind(node)) {
+            case PACKAGE:         return v.visitPackage(node, arg);
+            case CLASS_DECL:      return v.visitClassDecl(node, arg);
+            case FIELD_DECL:      return v.visitFieldDecl(node, arg);
+            case METHOD_DECL:     return v.visitMethodDecl(node, arg);
+            case PARAMETER_DECL:  return v.visitParameterDecl(node, arg);
+            case VAR_DECL:        return v.visitVarDecl(node, arg);
+            case BASE_TYPE:       return v.visitBaseType(node, arg);
+            case CLASS_TYPE:      return v.visitClassType(node, arg);
+            case ARRAY_TYPE:      return v.visitArrayType(node, arg);
+            case BLOCK_STMT:      return v.visitBlockStmt(node, arg);
+            case VARDECL_STMT:    return v.visitVardeclStmt(node, arg);
+            case ASSIGN_STMT:     return v.visitAssignStmt(node, arg);
+            case IX_ASSIGN_STMT:  return v.visitIxAssignStmt(node, arg);
+            case CALL_STMT:       return v.visitCallStmt(node, arg);
+            case RETURN_STMT:     return v.visitReturnStmt(node, arg);
+            case IF_STMT:         return v.visitIfStmt(node, arg);
+            case WHILE_STMT:      return v.visitWhileStmt(node, arg);
+            case UNARY_EXPR:      return v.visitUnaryExpr(node, arg);
+            case BINARY_EXPR:     return v.visitBinaryExpr(node, arg);
+            case REF_EXPR:        return v.visitRefExpr(node, arg);
+            case IX_EXPR:         return v.visitIxExpr(node, arg);
+            case CALL_EXPR:       return v.visitCallExpr(node, arg);
+            case LITERAL_EXPR:    return v.visitLiteralExpr(node, arg);
+            case NEW_OBJECT_EXPR: return v.visitNewObjectExpr(node, arg);
+            case NEW_ARRAY_EXPR:  return v.visitNewArrayExpr(node, arg);
+            case THIS_REF:        return v.visitThisRef(node, arg);
+            case ID_REF:          return v.visitIdRef(node, arg);
+            case QUAL_REF:        return v.visitQRef(node, arg);
+            case IDENTIFIER:      return v.visitIdentifier(node, arg);
+            case OPERATOR:        return v.visitOperator(node, arg);
+            case INT_LITERAL:     return v.visitIntLiteral(node, arg);
+            case BOOLEAN_LITERAL: return v.visitBooleanLiteral(node, arg);
+            case NULL_LITERAL:    return v.visitNullLiteral(node, arg);
+            default:
+                throw new IllegalStateException("Unknown node kind " + kind(node));
+        }
+    }
+
+    /**
+     * build ordinary AST objects for the subtree at node
+     */
+    public AST materialize(int node) {
+        return new Materializer(this).build(node);
+    }
+
+    public Package materialize() {
+        return (Package) materialize(root());
+    }
+
+    // building, used by Encoder and by anything that reads an arena back in
+
+    int addNode(Kind kind, int flags, int a, int b, long posn, int[] children, int from, int childCount) {
+        if (_nodes == _kind.length) {
+            int capacity = _nodes * 2;
+
+            _kind = Arrays.copyOf(_kind, capacity);
+            _posn = Arrays.copyOf(_posn, capacity);
+            _record = Arrays.copyOf(_record, capacity + 1);
+        }
+
+        int length = kind.header + childCount;
+
+        if (_size + length > _data.length) {
+            _data = Arrays.copyOf(_data, Math.max(_data.length * 2, _size + length));
+        }
+
+        int at = _size;
+
+        if (kind.header > 0) _data[at++] = flags;
+        if (kind.header > 1) _data[at++] = a;
+        if (kind.header > 2) _data[at++] = b;
+
+        System.arraycopy(children, from, _data, at, childCount);
+
+        _kind[_nodes] = (byte) kind.ordinal();
+        _posn[_nodes] = posn;
+        _record[_nodes] = _size;
+        _size += length;
+        _record[_nodes + 1] = _size;
+
+        return _nodes++;
+    }
+
+    int addName(String name) {
+        if (name == null) {
+            return NONE;
+        }
+
+        Integer index = _nameIndex.get(name);
+
+        if (index != null) {
+            return index;
+        }
+
+        if (_nameCount == _names.length) {
+            _names = Arrays.copyOf(_names, _nameCount * 2);
+        }
+
+        _names[_nameCount] = name;
+        _nameIndex.put(name, _nameCount);
+        return _nameCount++;
+    }
+
+    // drops the room left for growth once the arena is complete
+    void trim() {
+        _kind = Arrays.copyOf(_kind, _nodes);
+        _posn = Arrays.copyOf(_posn, _nodes);
+        _record = Arrays.copyOf(_record, _nodes + 1);
+        _data = Arrays.copyOf(_data, _size);
+        _names = Arrays.copyOf(_names, _nameCount);
+    }
+
+    /*
+     * Packs an AST bottom-up; every node is added, and its index pushed for its
+     * parent, in a step after its children.
+     */
+    private static final class Encoder implements Visitor<Object, Integer> {
+        private final ASTArena arena;
+        private final Traversal<Object, Integer> _traversal = new Traversal<Object, Integer>(this);
+        private int[] scratch = new int[16];
+        private int top;
+
+        Encoder(ASTArena arena) {
+            this.arena = arena;
+        }
+
+        // children are pushed on a scratch stack and popped by the node that owns them
+        private void push(int child) {
+            if (top == scratch.length) {
+                scratch = Arrays.copyOf(scratch, top * 2);
+            }
+
+            scratch[top++] = child;
+        }
+
+        void encode(Package prog) {
+            _traversal.run(prog, null);
+        }
+
+        private void push(AST child) {
+            if (child != null) {
+                _traversal.visit(child, null);
+            }
+        }
+
+        private Integer node(Kind kind, int flags, int a, int b, long posn, int base) {
+            int count = top - base;
+            top = base;
+            int node = arena.addNode(kind, flags, a, b, posn, scratch, base, count);
+            push(node);
+            return node;
+        }
+
+        private Integer terminal(Kind kind, Terminal t, int value) {
+            return node(kind, t.kind.ordinal(), arena.addName(t.spelling), value, t.posn, top);
+        }
+
+        private int member(MemberDecl md) {
+            return (md.isPrivate ? PRIVATE : 0) | (md.isStatic ? STATIC : 0);
+        }
+
+        public Integer visitPackage(Package prog, Object arg) {
+            int base = top;
+            for (ClassDecl cd : prog.classDeclList) push(cd);
+            _traversal.then(() -> node(Kind.PACKAGE, 0, NONE, NONE, prog.posn, base));
+            return null;
+        }
+
+        public Integer visitClassDecl(ClassDecl cd, Object arg) {
+            int base = top;
+            for (FieldDecl fd : cd.fieldDeclList) push(fd);
+            for (MethodDecl md : cd.methodDeclList) push(md);
+            _traversal.then(() -> node(Kind.CLASS_DECL, 0, arena.addName(cd.name), cd.fieldDeclList.size(), cd.posn, base));
+            return null;
+        }
+
+        public Integer visitFieldDecl(FieldDecl fd, Object arg) {
+            int base = top;
+            push(fd.type);
+            _traversal.then(() -> node(Kind.FIELD_DECL, member(fd), arena.addName(fd.name), arena.addName(fd.className), fd.posn, base));
+            return null;
+        }
+
+        public Integer visitMethodDecl(MethodDecl md, Object arg) {
+            int base = top;
+            push(md.type);
+            for (ParameterDecl pd : md.parameterDeclList) push(pd);
+            for (Statement s : md.statementList) push(s);
+            int flags = member(md) | (md.isIncomplete ? INCOMPLETE : 0);
+            _traversal.then(() -> node(Kind.METHOD_DECL, flags, arena.addName(md.name), md.parameterDeclList.size(), md.posn, base));
+            return null;
+        }
+
+        public Integer visitParameterDecl(ParameterDecl pd, Object arg) {
+            int base = top;
+            push(pd.type);
+            _traversal.then(() -> node(Kind.PARAMETER_DECL, 0, arena.addName(pd.name), arena.addName(pd.className), pd.posn, base));
+            return null;
+        }
+
+        public Integer visitVarDecl(VarDecl decl, Object arg) {
+            int base = top;
+            push(decl.type);
+            _traversal.then(() -> node(Kind.VAR_DECL, 0, arena.addName(decl.name), arena.addName(decl.className), decl.posn, base));
+            return null;
+        }
+
+        public Integer visitBaseType(BaseType type, Object arg) {
+            return node(Kind.BASE_TYPE, type.typeKind.ordinal(), NONE, NONE, type.posn, top);
+        }
+
+        public Integer visitClassType(ClassType type, Object arg) {
+            int base = top;
+            push(type.className);
+            _traversal.then(() -> node(Kind.CLASS_TYPE, type.typeKind.ordinal(), NONE, NONE, type.posn, base));
+            return null;
+        }
+
+        public Integer visitArrayType(ArrayType type, Object arg) {
+            int base = top;
+            push(type.eltType);
+            _traversal.then(() -> node(Kind.ARRAY_TYPE, type.typeKind.ordinal(), NONE, NONE, type.posn, base));
+            return null;
+        }
+
+        public Integer visitBlockStmt(BlockStmt stmt, Object arg) {
+            int base = top;
+            for (Statement s : stmt.sl) push(s);
+            _traversal.then(() -> node(Kind.BLOCK_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.varDecl);
+            push(stmt.initExp);
+            _traversal.then(() -> node(Kind.VARDECL_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitAssignStmt(AssignStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.ref);
+            push(stmt.val);
+            _traversal.then(() -> node(Kind.ASSIGN_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.ref);
+            push(stmt.ix);
+            push(stmt.exp);
+            _traversal.then(() -> node(Kind.IX_ASSIGN_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitCallStmt(CallStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.methodRef);
+            for (Expression e : stmt.argList) push(e);
+            _traversal.then(() -> node(Kind.CALL_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitReturnStmt(ReturnStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.returnExpr);
+            _traversal.then(() -> node(Kind.RETURN_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitIfStmt(IfStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.cond);
+            push(stmt.thenStmt);
+            push(stmt.elseStmt);
+            _traversal.then(() -> node(Kind.IF_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitWhileStmt(WhileStmt stmt, Object arg) {
+            int base = top;
+            push(stmt.cond);
+            push(stmt.body);
+            _traversal.then(() -> node(Kind.WHILE_STMT, 0, NONE, NONE, stmt.posn, base));
+            return null;
+        }
+
+        public Integer visitUnaryExpr(UnaryExpr expr, Object arg) {
+            int base = top;
+            push(expr.operator);
+            push(expr.expr);
+            _traversal.then(() -> node(Kind.UNARY_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitBinaryExpr(BinaryExpr expr, Object arg) {
+            int base = top;
+            push(expr.operator);
+            push(expr.left);
+            push(expr.right);
+            _traversal.then(() -> node(Kind.BINARY_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitRefExpr(RefExpr expr, Object arg) {
+            int base = top;
+            push(expr.ref);
+            _traversal.then(() -> node(Kind.REF_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitIxExpr(IxExpr expr, Object arg) {
+            int base = top;
+            push(expr.ref);
+            push(expr.ixExpr);
+            _traversal.then(() -> node(Kind.IX_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitCallExpr(CallExpr expr, Object arg) {
+            int base = top;
+            push(expr.functionRef);
+            for (Expression e : expr.argList) push(e);
+            _traversal.then(() -> node(Kind.CALL_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitLiteralExpr(LiteralExpr expr, Object arg) {
+            int base = top;
+            push(expr.lit);
+            _traversal.then(() -> node(Kind.LITERAL_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+            int base = top;
+            push(expr.classtype);
+            _traversal.then(() -> node(Kind.NEW_OBJECT_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+            int base = top;
+            push(expr.eltType);
+            push(expr.sizeExpr);
+            _traversal.then(() -> node(Kind.NEW_ARRAY_EXPR, 0, NONE, NONE, expr.posn, base));
+            return null;
+        }
+
+        public Integer visitThisRef(ThisRef ref, Object arg) {
+            return node(Kind.THIS_REF, 0, NONE, NONE, ref.posn, top);
+        }
+
+        public Integer visitIdRef(IdRef ref, Object arg) {
+            int base = top;
+            push(ref.id);
+            _traversal.then(() -> node(Kind.ID_REF, 0, NONE, NONE, ref.posn, base));
+            return null;
+        }
+
+        public Integer visitQRef(QualRef ref, Object arg) {
+            int base = top;
+            push(ref.ref);
+            push(ref.id);
+            _traversal.then(() -> node(Kind.QUAL_REF, 0, NONE, NONE, ref.posn, base));
+            return null;
+        }
+
+        public Integer visitIdentifier(Identifier id, Object arg) {
+            return terminal(Kind.IDENTIFIER, id, NONE);
+        }
+
+        public Integer visitOperator(Operator op, Object arg) {
+            return terminal(Kind.OPERATOR, op, NONE);
+        }
+
+        public Integer visitIntLiteral(IntLiteral num, Object arg) {
+            return terminal(Kind.INT_LITERAL, num, num.value);
+        }
+
+        public Integer visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+            return terminal(Kind.BOOLEAN_LITERAL, bool, NONE);
+        }
+
+        public Integer visitNullLiteral(NullLiteral nul, Object arg) {
+            return terminal(Kind.NULL_LITERAL, nul, NONE);
+        }
+    }
+
+    /*
+     * Rebuilds AST objects from an arena for the subtree at any node. The nodes are
+     * built children first from an explicit stack, and each visit picks up what its
+     * children were built into.
+     */
+    private static final class Materializer implements ArenaVisitor<Object, AST> {
+        private final ASTArena arena;
+        private AST[] built;
+
+        Materializer(ASTArena arena) {
+            this.arena = arena;
+        }
+
+        // a node below zero is ~n for n, whose children are built
+        AST build(int root) {
+            int[] stack = new int[16];
+            int top = 0;
+
+            built = new AST[root + 1];
+            stack[top++] = root;
+
+            while (top > 0) {
+                int n = stack[--top];
+
+                if (n < 0) {
+                    built[~n] = arena.accept(~n, this, null);
+                    continue;
+                }
+
+                int count = arena.childCount(n);
+
+                if (top + count + 1 > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + count + 1));
+                }
+
+                stack[top++] = ~n;
+                for (int i = 0; i < count; i++) stack[top++] = arena.child(n, i);
+            }
+
+            return built[root];
+        }
+
+        private Token token(int n) {
+            return new Token(arena.tokenType(n), arena.name(n), arena.posn(n),
+                    arena.kind(n) == Kind.INT_LITERAL ? arena.intValue(n) : 0);
+        }
+
+        private AST child(int n, int i) {
+            return i < arena.childCount(n) ? built[arena.child(n, i)] : null;
+        }
+
+        // the name, type and modifiers of a field or method, as the Parser builds them
+        private FieldDecl member(int n, String className) {
+            int flags = arena.flags(n);
+            return new FieldDecl((flags & PRIVATE) != 0, (flags & STATIC) != 0,
+                    (TypeDenoter) child(n, 0), arena.name(n), arena.posn(n), className);
+        }
+
+        // every child after the first
+        private ExprList arguments(int n) {
+            ExprList args = new ExprList();
+            for (int i = 1; i < arena.childCount(n); i++) args.add((Expression) child(n, i));
+            return args;
+        }
+
+        public AST visitPackage(int n, Object arg) {
+            ClassDeclList classes = new ClassDeclList();
+            for (int i = 0; i < arena.childCount(n); i++) classes.add((ClassDecl) child(n, i));
+            return new Package(classes, arena.posn(n), arena._types);
+        }
+
+        public AST visitClassDecl(int n, Object arg) {
+            FieldDeclList fields = new FieldDeclList();
+            MethodDeclList methods = new MethodDeclList();
+            int fieldCount = arena.count(n);
+            for (int i = 0; i < fieldCount; i++) fields.add((FieldDecl) child(n, i));
+            for (int i = fieldCount; i < arena.childCount(n); i++) methods.add((MethodDecl) child(n, i));
+            return new ClassDecl(arena.name(n), fields, methods, arena.posn(n));
+        }
+
+        public AST visitFieldDecl(int n, Object arg) {
+            return member(n, arena.className(n));
+        }
+
+        public AST visitMethodDecl(int n, Object arg) {
+            ParameterDeclList parameters = new ParameterDeclList();
+            StatementList statements = new StatementList();
+            int end = 1 + arena.count(n);
+            for (int i = 1; i < end; i++) parameters.add((ParameterDecl) child(n, i));
+            for (int i = end; i < arena.childCount(n); i++) statements.add((Statement) child(n, i));
+            MethodDecl md = new MethodDecl(member(n, null), parameters, statements, arena.posn(n));
+            md.isIncomplete = (arena.flags(n) & INCOMPLETE) != 0;
+            return md;
+        }
+
+        public AST visitParameterDecl(int n, Object arg) {
+            return new ParameterDecl((TypeDenoter) child(n, 0), arena.name(n), arena.posn(n), arena.className(n));
+        }
+
+        public AST visitVarDecl(int n, Object arg) {
+            return new VarDecl((TypeDenoter) child(n, 0), arena.name(n), arena.posn(n), arena.className(n));
+        }
+
+        public AST visitBaseType(int n, Object arg) {
+            return Types.base(arena.typeKind(n));
+        }
+
+        public AST visitClassType(int n, Object arg) {
+            return arena._types.classType(((Identifier) child(n, 0)).spelling);
+        }
+
+        public AST visitArrayType(int n, Object arg) {
+            return arena._types.arrayOf((TypeDenoter) child(n, 0));
+        }
+
+        public AST visitBlockStmt(int n, Object arg) {
+            StatementList statements = new StatementList();
+            for (int i = 0; i < arena.childCount(n); i++) statements.add((Statement) child(n, i));
+            return new BlockStmt(statements, arena.posn(n));
+        }
+
+        public AST visitVardeclStmt(int n, Object arg) {
+            return new VarDeclStmt((VarDecl) child(n, 0), (Expression) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitAssignStmt(int n, Object arg) {
+            return new AssignStmt((Reference) child(n, 0), (Expression) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitIxAssignStmt(int n, Object arg) {
+            return new IxAssignStmt((Reference) child(n, 0), (Expression) child(n, 1), (Expression) child(n, 2), arena.posn(n));
+        }
+
+        public AST visitCallStmt(int n, Object arg) {
+            return new CallStmt((Reference) child(n, 0), arguments(n), arena.posn(n));
+        }
+
+        public AST visitReturnStmt(int n, Object arg) {
+            return new ReturnStmt((Expression) child(n, 0), arena.posn(n));
+        }
+
+        public AST visitIfStmt(int n, Object arg) {
+            return new IfStmt((Expression) child(n, 0), (Statement) child(n, 1), (Statement) child(n, 2), arena.posn(n));
+        }
+
+        public AST visitWhileStmt(int n, Object arg) {
+            return new WhileStmt((Expression) child(n, 0), (Statement) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitUnaryExpr(int n, Object arg) {
+            return new UnaryExpr((Operator) child(n, 0), (Expression) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitBinaryExpr(int n, Object arg) {
+            return new BinaryExpr((Operator) child(n, 0), (Expression) child(n, 1), (Expression) child(n, 2), arena.posn(n));
+        }
+
+        public AST visitRefExpr(int n, Object arg) {
+            return new RefExpr((Reference) child(n, 0), arena.posn(n));
+        }
+
+        public AST visitIxExpr(int n, Object arg) {
+            return new IxExpr((Reference) child(n, 0), (Expression) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitCallExpr(int n, Object arg) {
+            return new CallExpr((Reference) child(n, 0), arguments(n), arena.posn(n));
+        }
+
+        public AST visitLiteralExpr(int n, Object arg) {
+            return new LiteralExpr((Terminal) child(n, 0), arena.posn(n));
+        }
+
+        public AST visitNewObjectExpr(int n, Object arg) {
+            return new NewObjectExpr((ClassType) child(n, 0), arena.posn(n));
+        }
+
+        public AST visitNewArrayExpr(int n, Object arg) {
+            return new NewArrayExpr((TypeDenoter) child(n, 0), (Expression) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitThisRef(int n, Object arg) {
+            return new ThisRef(arena.posn(n));
+        }
+
+        public AST visitIdRef(int n, Object arg) {
+            return new IdRef((Identifier) child(n, 0), arena.posn(n));
+        }
+
+        public AST visitQRef(int n, Object arg) {
+            return new QualRef((Reference) child(n, 0), (Identifier) child(n, 1), arena.posn(n));
+        }
+
+        public AST visitIdentifier(int n, Object arg) {
+            return new Identifier(token(n));
+        }
+
+        public AST visitOperator(int n, Object arg) {
+            return new Operator(token(n));
+        }
+
+        public AST visitIntLiteral(int n, Object arg) {
+            return new IntLiteral(token(n));
+        }
+
+        public AST visitBooleanLiteral(int n, Object arg) {
+            return new BooleanLiteral(token(n));
+        }
+
+        public AST visitNullLiteral(int n, Object arg) {
+            return new NullLiteral(token(n));
+        }
+    }
+}
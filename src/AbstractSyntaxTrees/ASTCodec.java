@@ -0,0 +1,1119 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import miniJava.SyntacticAnalyzer.SourcePosition;
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+/*
+ * The byte form the ASTCache keeps a tree in. It is written straight from the AST
+ * objects and read straight back into them, in one pass each way, with no ASTArena
+ * or other intermediate form in between. Every number is a varint:
+ *
+ *   header    FORMAT_VERSION, names, per name its UTF-8 length and bytes, the
+ *             position of the package and the number of classes
+ *   classes   per class the length of its nodes in bytes, then the nodes
+ *
+ * Each class stands on its own, so a large tree is decoded a few classes per task.
+ * Within a class the nodes come children first, so decoding is one loop over a
+ * stack: a node pops its children and pushes itself. A node is a tag byte holding
+ * its ASTArena.Kind, followed only by what its children do not already say:
+ *
+ *   declarations   PRIVATE | STATIC | INCOMPLETE, the name, the className of a
+ *                  field, parameter or variable, and the list sizes of a class
+ *                  or method
+ *   types          the TypeKind of a base type or the name of a class type;
+ *                  types are shared (see Types), so they have no position
+ *   terminals      the spelling, the TokenType unless the kind implies it, and
+ *                  the value of an int literal
+ *   calls, blocks  the number of arguments or statements
+ *
+ * Children come in the order of the AST fields, except that a binary expression
+ * has its operator between its operands, as in the source. A missing optional child, such as the else of an if, is a NULL tag.
+ *
+ * Positions are where the bytes go in a plain encoding, so most are not written
+ * at all. A node mostly starts where its first child starts and ends where its
+ * last child ends, and a terminal ends where its spelling does; a bit in the tag
+ * says so for each end, and only an end that differs is written, as a difference.
+ * A node without children starts a difference away from the node before it.
+ *
+ * Kinds, TypeKinds and TokenTypes are stored by ordinal, so FORMAT_VERSION has to
+ * change whenever one of those enums or the layout does.
+ */
+public final class ASTCodec {
+	public static final int FORMAT_VERSION = 3;
+
+	private static final int KIND = 0x3F;
+	private static final int NULL = KIND;
+	// The node starts where its first child does, or, for a terminal, its TokenType is written
+	private static final int START_SHARED = 0x40;
+	private static final int EXPLICIT_TOKEN = 0x40;
+	// The node ends where its last child or its spelling does
+	private static final int END_SHARED = 0x80;
+
+	private static final int PRIVATE = ASTArena.PRIVATE;
+	private static final int STATIC = ASTArena.STATIC;
+	private static final int INCOMPLETE = ASTArena.INCOMPLETE;
+
+	// Classes smaller than this in total are not worth a task of their own
+	private static final int MIN_GROUP = 1 << 18;
+
+	private static final ASTArena.Kind[] KINDS = ASTArena.Kind.values();
+	private static final TypeKind[] TYPE_KINDS = TypeKind.values();
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	private ASTCodec() {}
+
+	public static byte[] encode(Package prog) {
+		Writer writer = new Writer();
+		Packer body = new Packer(1 << 16);
+		Packer section = new Packer(1 << 12);
+
+		for (ClassDecl cd : prog.classDeclList) {
+			writer.start(section);
+			writer.write(cd);
+			body.varint(section.pos);
+			body.bytes(section.buf, section.pos);
+		}
+
+		Packer out = new Packer(body.pos + writer.names.size() * 12 + 64);
+
+		out.varint(FORMAT_VERSION);
+		out.varint(writer.names.size());
+
+		for (String name : writer.names) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			out.varint(bytes.length);
+			out.bytes(bytes, bytes.length);
+		}
+
+		out.position(prog.posn);
+		out.varint(prog.classDeclList.size());
+		out.bytes(body.buf, body.pos);
+
+		return out.toBytes();
+	}
+
+	public static Package decode(byte[] in, int from) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int groups = Math.min(pool.getParallelism() * 4, (in.length - from) / MIN_GROUP);
+
+		return decode(in, from, pool, groups);
+	}
+
+	/**
+	 * read back what encode() wrote, starting at from
+	 * @param groups  how many tasks of pool to spread the classes over; below 2 the
+	 *                classes are decoded on the calling thread
+	 * @return the tree, or null if in holds another format version or is damaged
+	 */
+	public static Package decode(byte[] in, int from, ForkJoinPool pool, int groups) {
+		try {
+			Unpacker header = new Unpacker(in, from);
+
+			if (header.varint() != FORMAT_VERSION) {
+				return null;
+			}
+
+			String[] names = new String[header.varint()];
+
+			for (int i = 0; i < names.length; i++) {
+				int length = header.varint();
+				// names compare with == once they are in an AST
+				names[i] = new String(in, header.skip(length), length, StandardCharsets.UTF_8).intern();
+			}
+
+			long posn = header.position();
+			ClassDecl[] classes = new ClassDecl[header.varint()];
+			// class i is in[starts[i], ends[i])
+			int[] starts = new int[classes.length];
+			int[] ends = new int[classes.length];
+
+			for (int i = 0; i < classes.length; i++) {
+				int length = header.varint();
+				starts[i] = header.skip(length);
+				ends[i] = header.pos;
+			}
+
+			if (header.pos != in.length) {
+				return null;
+			}
+
+			// The decoded program's own, shared by the readers of all its classes
+			Types types = new Types();
+
+			if (groups < 2 || classes.length < 2) {
+				new Reader(in, names, types).classes(starts, ends, 0, classes.length, classes);
+			} else {
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+				int target = (in.length - starts[0]) / groups;
+				int first = 0;
+
+				for (int i = 1; i <= classes.length; i++) {
+					if (i == classes.length || starts[i] - starts[first] >= target) {
+						int begin = first;
+						int end = i;
+
+						tasks.add(() -> new Reader(in, names, types).classes(starts, ends, begin, end, classes));
+						first = i;
+					}
+				}
+
+				for (Future<Object> f : pool.invokeAll(tasks)) {
+					f.get();
+				}
+			}
+
+			ClassDeclList list = new ClassDeclList();
+
+			for (ClassDecl cd : classes) {
+				list.add(cd);
+			}
+
+			return new Package(list, posn, types);
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch( ExecutionException | RuntimeException e ) {
+			// Cut short, or bytes that are not a tree at all
+			return null;
+		}
+	}
+
+	/*
+	 * Writes one class at a time, children before their parent. Every node leaves
+	 * its position on a stack, where its parent finds the positions of its children.
+	 */
+	private static final class Writer implements Visitor<Object, Object> {
+		final List<String> names = new ArrayList<String>();
+		private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+		private Packer out;
+		private long[] posns = new long[64];
+		private int top;
+		private int cursor;
+		// the first and last child with a position, as tag() found them
+		private long first;
+		private long last;
+		// a node is written once its children are, in a step after them
+		private final Traversal<Object, Object> _traversal = new Traversal<Object, Object>(this);
+
+		void start(Packer section) {
+			out = section;
+			out.pos = 0;
+			top = 0;
+			cursor = 0;
+		}
+
+		// 0 for null, so optional names cost one byte
+		private void name(String name) {
+			if (name == null) {
+				out.varint(0);
+				return;
+			}
+
+			Integer i = index.get(name);
+
+			if (i == null) {
+				i = names.size();
+				names.add(name);
+				index.put(name, i);
+			}
+
+			out.varint(i + 1);
+		}
+
+		private void push(long posn) {
+			if (top == posns.length) {
+				posns = Arrays.copyOf(posns, top * 2);
+			}
+
+			posns[top++] = posn;
+		}
+
+		void write(ClassDecl cd) {
+			_traversal.run(cd, null);
+		}
+
+		private void child(AST child) {
+			if (child == null) {
+				_traversal.then(() -> {
+					out.tag(NULL);
+					push(SourcePosition.NONE);
+					return null;
+				});
+			} else {
+				_traversal.visit(child, null);
+			}
+		}
+
+		// a type has no position, so it does not count for the position of its parent
+		private void type(int base) {
+			top = base;
+			push(SourcePosition.NONE);
+		}
+
+		/*
+		 * The tag of a node whose children left their positions in posns[base, top).
+		 * The caller writes the payload of the node between tag() and end().
+		 */
+		private int tag(ASTArena.Kind kind, long posn, int base) {
+			int flags = 0;
+			first = SourcePosition.NONE;
+			last = SourcePosition.NONE;
+
+			for (int i = base; i < top; i++) {
+				if (posns[i] != SourcePosition.NONE) {
+					if (first == SourcePosition.NONE) first = posns[i];
+					last = posns[i];
+				}
+			}
+
+			if (posn != SourcePosition.NONE) {
+				if (first != SourcePosition.NONE && SourcePosition.offset(posn) == SourcePosition.offset(first)) {
+					flags |= START_SHARED;
+				}
+
+				if (last != SourcePosition.NONE && SourcePosition.end(posn) == SourcePosition.end(last)) {
+					flags |= END_SHARED;
+				}
+			}
+
+			out.tag(kind.ordinal() | flags);
+			return flags;
+		}
+
+		// the position, relative to the children tag() found; length is that of a terminal's spelling
+		private void end(long posn, int base, int flags, int length) {
+			top = base;
+			push(posn);
+
+			if ((flags & START_SHARED) == 0) {
+				if (posn == SourcePosition.NONE) {
+					out.varlong(0);
+					return;
+				}
+
+				long startBase = first != SourcePosition.NONE ? SourcePosition.offset(first) : cursor;
+				out.varlong(zigzag(SourcePosition.offset(posn) - startBase) + 1);
+			}
+
+			int start = SourcePosition.offset(posn);
+
+			if ((flags & END_SHARED) == 0) {
+				long endBase = last != SourcePosition.NONE ? SourcePosition.end(last) : (long) start + length;
+				out.varlong(zigzag(SourcePosition.end(posn) - endBase));
+			}
+
+			cursor = start;
+		}
+
+		private void node(ASTArena.Kind kind, long posn, int base) {
+			end(posn, base, tag(kind, posn, base), 0);
+		}
+
+		private void terminal(ASTArena.Kind kind, Terminal t, TokenType implied) {
+			int flags = t.kind != implied ? EXPLICIT_TOKEN : 0;
+			// a terminal has no children, so END_SHARED means it ends with its spelling
+			if (t.posn != SourcePosition.NONE
+					&& (long) SourcePosition.offset(t.posn) + t.spelling.length() == SourcePosition.end(t.posn)) {
+				flags |= END_SHARED;
+			}
+
+			first = SourcePosition.NONE;
+			last = SourcePosition.NONE;
+			out.tag(kind.ordinal() | flags);
+			name(t.spelling);
+
+			if ((flags & EXPLICIT_TOKEN) != 0) {
+				out.varint(t.kind.ordinal());
+			}
+
+			if (kind == ASTArena.Kind.INT_LITERAL) {
+				out.varint(((IntLiteral) t).value);
+			}
+
+			end(t.posn, top, flags & ~START_SHARED, t.spelling.length());
+		}
+
+		private int member(MemberDecl md) {
+			return (md.isPrivate ? PRIVATE : 0) | (md.isStatic ? STATIC : 0);
+		}
+
+		public Object visitPackage(Package prog, Object arg) {
+			throw new IllegalStateException("A package is written by encode()");
+		}
+
+		public Object visitClassDecl(ClassDecl cd, Object arg) {
+			int base = top;
+			for (FieldDecl fd : cd.fieldDeclList) child(fd);
+			for (MethodDecl md : cd.methodDeclList) child(md);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.CLASS_DECL, cd.posn, base);
+				name(cd.name);
+				out.varint(cd.fieldDeclList.size());
+				out.varint(cd.methodDeclList.size());
+				end(cd.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitFieldDecl(FieldDecl fd, Object arg) {
+			int base = top;
+			child(fd.type);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.FIELD_DECL, fd.posn, base);
+				out.varint(member(fd));
+				name(fd.name);
+				name(fd.className);
+				end(fd.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitMethodDecl(MethodDecl md, Object arg) {
+			int base = top;
+			child(md.type);
+			for (ParameterDecl pd : md.parameterDeclList) child(pd);
+			for (Statement s : md.statementList) child(s);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.METHOD_DECL, md.posn, base);
+				out.varint(member(md) | (md.isIncomplete ? INCOMPLETE : 0));
+				name(md.name);
+				out.varint(md.parameterDeclList.size());
+				out.varint(md.statementList.size());
+				end(md.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+			int base = top;
+			child(pd.type);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.PARAMETER_DECL, pd.posn, base);
+				name(pd.name);
+				name(pd.className);
+				end(pd.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitVarDecl(VarDecl decl, Object arg) {
+			int base = top;
+			child(decl.type);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.VAR_DECL, decl.posn, base);
+				name(decl.name);
+				name(decl.className);
+				end(decl.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitBaseType(BaseType type, Object arg) {
+			out.tag(ASTArena.Kind.BASE_TYPE.ordinal());
+			out.varint(type.typeKind.ordinal());
+			type(top);
+			return null;
+		}
+
+		public Object visitClassType(ClassType type, Object arg) {
+			out.tag(ASTArena.Kind.CLASS_TYPE.ordinal());
+			name(type.className.spelling);
+			type(top);
+			return null;
+		}
+
+		public Object visitArrayType(ArrayType type, Object arg) {
+			int base = top;
+			child(type.eltType);
+			_traversal.then(() -> {
+				out.tag(ASTArena.Kind.ARRAY_TYPE.ordinal());
+				type(base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+			int base = top;
+			for (Statement s : stmt.sl) child(s);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.BLOCK_STMT, stmt.posn, base);
+				out.varint(stmt.sl.size());
+				end(stmt.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.varDecl);
+			child(stmt.initExp);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.VARDECL_STMT, stmt.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.ref);
+			child(stmt.val);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.ASSIGN_STMT, stmt.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.ref);
+			child(stmt.ix);
+			child(stmt.exp);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.IX_ASSIGN_STMT, stmt.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitCallStmt(CallStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.methodRef);
+			for (Expression e : stmt.argList) child(e);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.CALL_STMT, stmt.posn, base);
+				out.varint(stmt.argList.size());
+				end(stmt.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.returnExpr);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.RETURN_STMT, stmt.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitIfStmt(IfStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.cond);
+			child(stmt.thenStmt);
+			child(stmt.elseStmt);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.IF_STMT, stmt.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+			int base = top;
+			child(stmt.cond);
+			child(stmt.body);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.WHILE_STMT, stmt.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+			int base = top;
+			child(expr.operator);
+			child(expr.expr);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.UNARY_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+			int base = top;
+			// in source order, so the expression starts where its first child does
+			child(expr.left);
+			child(expr.operator);
+			child(expr.right);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.BINARY_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitRefExpr(RefExpr expr, Object arg) {
+			int base = top;
+			child(expr.ref);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.REF_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitIxExpr(IxExpr expr, Object arg) {
+			int base = top;
+			child(expr.ref);
+			child(expr.ixExpr);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.IX_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitCallExpr(CallExpr expr, Object arg) {
+			int base = top;
+			child(expr.functionRef);
+			for (Expression e : expr.argList) child(e);
+			_traversal.then(() -> {
+				int flags = tag(ASTArena.Kind.CALL_EXPR, expr.posn, base);
+				out.varint(expr.argList.size());
+				end(expr.posn, base, flags, 0);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+			int base = top;
+			child(expr.lit);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.LITERAL_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+			int base = top;
+			child(expr.classtype);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.NEW_OBJECT_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+			int base = top;
+			child(expr.eltType);
+			child(expr.sizeExpr);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.NEW_ARRAY_EXPR, expr.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitThisRef(ThisRef ref, Object arg) {
+			node(ASTArena.Kind.THIS_REF, ref.posn, top);
+			return null;
+		}
+
+		public Object visitIdRef(IdRef ref, Object arg) {
+			int base = top;
+			child(ref.id);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.ID_REF, ref.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitQRef(QualRef ref, Object arg) {
+			int base = top;
+			child(ref.ref);
+			child(ref.id);
+			_traversal.then(() -> {
+				node(ASTArena.Kind.QUAL_REF, ref.posn, base);
+				return null;
+			});
+			return null;
+		}
+
+		public Object visitIdentifier(Identifier id, Object arg) {
+			terminal(ASTArena.Kind.IDENTIFIER, id, TokenType.ID);
+			return null;
+		}
+
+		public Object visitOperator(Operator op, Object arg) {
+			terminal(ASTArena.Kind.OPERATOR, op, null);
+			return null;
+		}
+
+		public Object visitIntLiteral(IntLiteral num, Object arg) {
+			terminal(ASTArena.Kind.INT_LITERAL, num, TokenType.INTLITERAL);
+			return null;
+		}
+
+		public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+			terminal(ASTArena.Kind.BOOLEAN_LITERAL, bool, null);
+			return null;
+		}
+
+		public Object visitNullLiteral(NullLiteral nul, Object arg) {
+			terminal(ASTArena.Kind.NULL_LITERAL, nul, TokenType.NULL);
+			return null;
+		}
+	}
+
+	/*
+	 * Decodes classes with an explicit stack, so a deeply nested tree needs no
+	 * deep thread stack to read back.
+	 */
+	private static final class Reader {
+		private final Unpacker in;
+		private final String[] names;
+		private final Types types;
+
+		private AST[] stack = new AST[64];
+		private int top;
+		private int cursor;
+
+		Reader(byte[] in, String[] names, Types types) {
+			this.in = new Unpacker(in, 0);
+			this.names = names;
+			this.types = types;
+		}
+
+		Object classes(int[] starts, int[] ends, int begin, int end, ClassDecl[] classes) {
+			for (int i = begin; i < end; i++) {
+				in.pos = starts[i];
+				top = 0;
+				cursor = 0;
+
+				while (in.pos < ends[i]) {
+					node();
+				}
+
+				if (top != 1 || in.pos != ends[i]) {
+					throw new IllegalStateException("Damaged class");
+				}
+
+				classes[i] = (ClassDecl) stack[0];
+			}
+
+			return null;
+		}
+
+		private String name() {
+			int i = in.varint();
+			return i == 0 ? null : names[i - 1];
+		}
+
+		private void push(AST node) {
+			if (top == stack.length) {
+				stack = Arrays.copyOf(stack, top * 2);
+			}
+
+			stack[top++] = node;
+		}
+
+		// the position of a node whose children are stack[base, top), which are then popped
+		private long position(int tag, int base, int length) {
+			long first = SourcePosition.NONE;
+			long last = SourcePosition.NONE;
+
+			for (int i = base; i < top; i++) {
+				AST child = stack[i];
+
+				if (child != null && child.posn != SourcePosition.NONE) {
+					if (first == SourcePosition.NONE) first = child.posn;
+					last = child.posn;
+				}
+			}
+
+			top = base;
+
+			long start;
+
+			if ((tag & START_SHARED) != 0) {
+				start = SourcePosition.offset(first);
+			} else {
+				long delta = in.varlong();
+
+				if (delta == 0) {
+					return SourcePosition.NONE;
+				}
+
+				start = (first != SourcePosition.NONE ? SourcePosition.offset(first) : cursor) + unzigzag(delta - 1);
+			}
+
+			long end;
+
+			if ((tag & END_SHARED) != 0) {
+				end = last != SourcePosition.NONE ? SourcePosition.end(last) : start + length;
+			} else {
+				end = (last != SourcePosition.NONE ? SourcePosition.end(last) : start + length) + unzigzag(in.varlong());
+			}
+
+			cursor = (int) start;
+			return SourcePosition.make((int) start, (int) (end - start));
+		}
+
+		private AST at(int base, int i) {
+			return stack[base + i];
+		}
+
+		private Token token(int tag, TokenType implied) {
+			String spelling = name();
+			TokenType type = (tag & EXPLICIT_TOKEN) != 0 ? TOKEN_TYPES[in.varint()] : implied;
+			int value = (tag & KIND) == ASTArena.Kind.INT_LITERAL.ordinal() ? in.varint() : 0;
+
+			if (type == null) {
+				throw new IllegalStateException("Missing token type");
+			}
+
+			return new Token(type, spelling, position(tag & ~START_SHARED, top, spelling.length()), value);
+		}
+
+		private ExprList arguments(int base, int count) {
+			ExprList args = new ExprList();
+			for (int i = 0; i < count; i++) args.add((Expression) at(base, 1 + i));
+			return args;
+		}
+
+		private void node() {
+			int tag = in.tag();
+
+			if ((tag & KIND) == NULL) {
+				push(null);
+				return;
+			}
+
+			ASTArena.Kind kind = KINDS[tag & KIND];
+			AST node;
+			int base;
+
+			switch (kind) {
+			case CLASS_DECL: {
+				String name = name();
+				int fieldCount = in.varint();
+				int methodCount = in.varint();
+				base = top - fieldCount - methodCount;
+				FieldDeclList fields = new FieldDeclList();
+				MethodDeclList methods = new MethodDeclList();
+				for (int i = 0; i < fieldCount; i++) fields.add((FieldDecl) at(base, i));
+				for (int i = 0; i < methodCount; i++) methods.add((MethodDecl) at(base, fieldCount + i));
+				node = new ClassDecl(name, fields, methods, position(tag, base, 0));
+				break;
+			}
+			case FIELD_DECL: {
+				int flags = in.varint();
+				String name = name();
+				String className = name();
+				base = top - 1;
+				TypeDenoter type = (TypeDenoter) at(base, 0);
+				node = new FieldDecl((flags & PRIVATE) != 0, (flags & STATIC) != 0, type, name,
+						position(tag, base, 0), className);
+				break;
+			}
+			case METHOD_DECL: {
+				int flags = in.varint();
+				String name = name();
+				int parameterCount = in.varint();
+				int statementCount = in.varint();
+				base = top - 1 - parameterCount - statementCount;
+				ParameterDeclList parameters = new ParameterDeclList();
+				StatementList statements = new StatementList();
+				for (int i = 0; i < parameterCount; i++) parameters.add((ParameterDecl) at(base, 1 + i));
+				for (int i = 0; i < statementCount; i++) statements.add((Statement) at(base, 1 + parameterCount + i));
+				TypeDenoter type = (TypeDenoter) at(base, 0);
+				long posn = position(tag, base, 0);
+				MethodDecl md = new MethodDecl(new FieldDecl((flags & PRIVATE) != 0, (flags & STATIC) != 0,
+						type, name, posn, null), parameters, statements, posn);
+				md.isIncomplete = (flags & INCOMPLETE) != 0;
+				node = md;
+				break;
+			}
+			case PARAMETER_DECL: {
+				String name = name();
+				String className = name();
+				base = top - 1;
+				TypeDenoter type = (TypeDenoter) at(base, 0);
+				node = new ParameterDecl(type, name, position(tag, base, 0), className);
+				break;
+			}
+			case VAR_DECL: {
+				String name = name();
+				String className = name();
+				base = top - 1;
+				TypeDenoter type = (TypeDenoter) at(base, 0);
+				node = new VarDecl(type, name, position(tag, base, 0), className);
+				break;
+			}
+			case BASE_TYPE:
+				push(Types.base(TYPE_KINDS[in.varint()]));
+				return;
+			case CLASS_TYPE:
+				push(types.classType(name()));
+				return;
+			case ARRAY_TYPE:
+				stack[top - 1] = types.arrayOf((TypeDenoter) stack[top - 1]);
+				return;
+			case BLOCK_STMT: {
+				int count = in.varint();
+				base = top - count;
+				StatementList statements = new StatementList();
+				for (int i = 0; i < count; i++) statements.add((Statement) at(base, i));
+				node = new BlockStmt(statements, position(tag, base, 0));
+				break;
+			}
+			case VARDECL_STMT:
+				base = top - 2;
+				node = new VarDeclStmt((VarDecl) at(base, 0), (Expression) at(base, 1), position(tag, base, 0));
+				break;
+			case ASSIGN_STMT:
+				base = top - 2;
+				node = new AssignStmt((Reference) at(base, 0), (Expression) at(base, 1), position(tag, base, 0));
+				break;
+			case IX_ASSIGN_STMT:
+				base = top - 3;
+				node = new IxAssignStmt((Reference) at(base, 0), (Expression) at(base, 1), (Expression) at(base, 2),
+						position(tag, base, 0));
+				break;
+			case CALL_STMT: {
+				int count = in.varint();
+				base = top - 1 - count;
+				node = new CallStmt((Reference) at(base, 0), arguments(base, count), position(tag, base, 0));
+				break;
+			}
+			case RETURN_STMT:
+				base = top - 1;
+				node = new ReturnStmt((Expression) at(base, 0), position(tag, base, 0));
+				break;
+			case IF_STMT:
+				base = top - 3;
+				node = new IfStmt((Expression) at(base, 0), (Statement) at(base, 1), (Statement) at(base, 2),
+						position(tag, base, 0));
+				break;
+			case WHILE_STMT:
+				base = top - 2;
+				node = new WhileStmt((Expression) at(base, 0), (Statement) at(base, 1), position(tag, base, 0));
+				break;
+			case UNARY_EXPR:
+				base = top - 2;
+				node = new UnaryExpr((Operator) at(base, 0), (Expression) at(base, 1), position(tag, base, 0));
+				break;
+			case BINARY_EXPR:
+				base = top - 3;
+				node = new BinaryExpr((Operator) at(base, 1), (Expression) at(base, 0), (Expression) at(base, 2),
+						position(tag, base, 0));
+				break;
+			case REF_EXPR:
+				base = top - 1;
+				node = new RefExpr((Reference) at(base, 0), position(tag, base, 0));
+				break;
+			case IX_EXPR:
+				base = top - 2;
+				node = new IxExpr((Reference) at(base, 0), (Expression) at(base, 1), position(tag, base, 0));
+				break;
+			case CALL_EXPR: {
+				int count = in.varint();
+				base = top - 1 - count;
+				node = new CallExpr((Reference) at(base, 0), arguments(base, count), position(tag, base, 0));
+				break;
+			}
+			case LITERAL_EXPR:
+				base = top - 1;
+				node = new LiteralExpr((Terminal) at(base, 0), position(tag, base, 0));
+				break;
+			case NEW_OBJECT_EXPR:
+				base = top - 1;
+				node = new NewObjectExpr((ClassType) at(base, 0), position(tag, base, 0));
+				break;
+			case NEW_ARRAY_EXPR:
+				base = top - 2;
+				node = new NewArrayExpr((TypeDenoter) at(base, 0), (Expression) at(base, 1), position(tag, base, 0));
+				break;
+			case THIS_REF:
+				base = top;
+				node = new ThisRef(position(tag, base, 0));
+				break;
+			case ID_REF:
+				base = top - 1;
+				node = new IdRef((Identifier) at(base, 0), position(tag, base, 0));
+				break;
+			case QUAL_REF:
+				base = top - 2;
+				node = new QualRef((Reference) at(base, 0), (Identifier) at(base, 1), position(tag, base, 0));
+				break;
+			case IDENTIFIER:
+				node = new Identifier(token(tag, TokenType.ID));
+				break;
+			case OPERATOR:
+				node = new Operator(token(tag, null));
+				break;
+			case INT_LITERAL:
+				node = new IntLiteral(token(tag, TokenType.INTLITERAL));
+				break;
+			case BOOLEAN_LITERAL:
+				node = new BooleanLiteral(token(tag, null));
+				break;
+			case NULL_LITERAL:
+				node = new NullLiteral(token(tag, TokenType.NULL));
+				break;
+			default:
+				throw new IllegalStateException("Unexpected node kind " + kind);
+			}
+
+			push(node);
+		}
+	}
+
+	private static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	private static long unzigzag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	// LEB128 varints
+
+	private static final class Packer {
+		private byte[] buf;
+		private int pos;
+
+		Packer(int capacity) {
+			buf = new byte[capacity];
+		}
+
+		private void room(int n) {
+			if (pos + n > buf.length) {
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+			}
+		}
+
+		void tag(int tag) {
+			room(1);
+			buf[pos++] = (byte) tag;
+		}
+
+		void varint(int v) {
+			room(5);
+
+			while ((v & ~0x7F) != 0) {
+				buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+
+			buf[pos++] = (byte) v;
+		}
+
+		void varlong(long v) {
+			room(10);
+
+			while ((v & ~0x7FL) != 0) {
+				buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+
+			buf[pos++] = (byte) v;
+		}
+
+		// NONE as 0, anything else as offset + 1 and length
+		void position(long posn) {
+			if (posn == SourcePosition.NONE) {
+				varint(0);
+			} else {
+				varint(SourcePosition.offset(posn) + 1);
+				varint(SourcePosition.length(posn));
+			}
+		}
+
+		void bytes(byte[] b, int length) {
+			room(length);
+			System.arraycopy(b, 0, buf, pos, length);
+			pos += length;
+		}
+
+		byte[] toBytes() {
+			return Arrays.copyOf(buf, pos);
+		}
+	}
+
+	private static final class Unpacker {
+		private final byte[] buf;
+		private int pos;
+
+		Unpacker(byte[] buf, int pos) {
+			this.buf = buf;
+			this.pos = pos;
+		}
+
+		int tag() {
+			return buf[pos++] & 0xFF;
+		}
+
+		int varint() {
+			int v = 0;
+
+			for (int shift = 0; ; shift += 7) {
+				byte b = buf[pos++];
+				v |= (b & 0x7F) << shift;
+
+				if (b >= 0) {
+					return v;
+				}
+			}
+		}
+
+		long varlong() {
+			long v = 0;
+
+			for (int shift = 0; ; shift += 7) {
+				byte b = buf[pos++];
+				v |= (long) (b & 0x7F) << shift;
+
+				if (b >= 0) {
+					return v;
+				}
+			}
+		}
+
+		long position() {
+			int offset = varint();
+			return offset == 0 ? SourcePosition.NONE : SourcePosition.make(offset - 1, varint());
+		}
+
+		// start of the next length bytes, which are then passed over
+		int skip(int length) {
+			int at = pos;
+
+			if (length < 0 || at + length > buf.length) {
+				throw new IndexOutOfBoundsException("cut short");
+			}
+
+			pos += length;
+			return at;
+		}
+	}
+}
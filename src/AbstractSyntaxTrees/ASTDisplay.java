@@ -21,6 +21,10 @@ package miniJava.AbstractSyntaxTrees;
 public class ASTDisplay implements Visitor<String,Object> {
 	
 	public static boolean showPosition = false;
+
+	// Children are visited from a worklist, so a line that follows them is shown
+	//  by a step of their parent, see Traversal
+	private final Traversal<String,Object> _traversal = new Traversal<String,Object>(this);
     
     /**
      * print text representation of AST to stdout
@@ -28,7 +32,7 @@ public class ASTDisplay implements Visitor<String,Object> {
      */
     public void showTree(AST ast){
         System.out.println("======= AST Display =========================");
-        ast.visit(this, "");
+        _traversal.run(ast, "");
         System.out.println("=============================================");
     }   
     
@@ -43,6 +47,18 @@ public class ASTDisplay implements Visitor<String,Object> {
         System.out.println(prefix + text);
     }
     
+    /**
+     * display text once the children visited so far are displayed
+     * @param prefix  indent text to indicate depth in AST
+     * @param text    preformatted node display
+     */
+    private void showLater(String prefix, String text) {
+        _traversal.then(() -> {
+            show(prefix, text);
+            return null;
+        });
+    }
+    
     /**
      * display AST node by name
      * @param prefix  spaced indent to indicate depth in AST
@@ -82,7 +98,7 @@ public class ASTDisplay implements Visitor<String,Object> {
         show(arg,"  ClassDeclList [" + cl.size() + "]");
         String pfx = arg + "  . "; 
         for (ClassDecl c: prog.classDeclList){
-            c.visit(this, pfx);
+            _traversal.visit(c, pfx);
         }
         return null;
     }
@@ -100,51 +116,51 @@ public class ASTDisplay implements Visitor<String,Object> {
         show(arg,"  FieldDeclList [" + clas.fieldDeclList.size() + "]");
         String pfx = arg + "  . "; 
         for (FieldDecl f: clas.fieldDeclList)
-        	f.visit(this, pfx);
-        show(arg,"  MethodDeclList [" + clas.methodDeclList.size() + "]");
+        	_traversal.visit(f, pfx);
+        showLater(arg,"  MethodDeclList [" + clas.methodDeclList.size() + "]");
         for (MethodDecl m: clas.methodDeclList)
-        	m.visit(this, pfx);
+        	_traversal.visit(m, pfx);
         return null;
     }
     
     public Object visitFieldDecl(FieldDecl f, String arg){
        	show(arg, "(" + (f.isPrivate ? "private": "public") 
     			+ (f.isStatic ? " static) " :") ") + f.toString());
-    	f.type.visit(this, indent(arg));
-    	show(indent(arg), quote(f.name) + " fieldname");
+    	_traversal.visit(f.type, indent(arg));
+    	showLater(indent(arg), quote(f.name) + " fieldname");
         return null;
     }
     
     public Object visitMethodDecl(MethodDecl m, String arg){
        	show(arg, "(" + (m.isPrivate ? "private": "public") 
     			+ (m.isStatic ? " static) " :") ") + m.toString());
-    	m.type.visit(this, indent(arg));
-    	show(indent(arg), quote(m.name) + " methodname");
+    	_traversal.visit(m.type, indent(arg));
         ParameterDeclList pdl = m.parameterDeclList;
-        show(arg, "  ParameterDeclList [" + pdl.size() + "]");
+        showLater(indent(arg), quote(m.name) + " methodname");
+        showLater(arg, "  ParameterDeclList [" + pdl.size() + "]");
         String pfx = ((String) arg) + "  . ";
         for (ParameterDecl pd: pdl) {
-            pd.visit(this, pfx);
+            _traversal.visit(pd, pfx);
         }
         StatementList sl = m.statementList;
-        show(arg, "  StmtList [" + sl.size() + "]");
+        showLater(arg, "  StmtList [" + sl.size() + "]");
         for (Statement s: sl) {
-            s.visit(this, pfx);
+            _traversal.visit(s, pfx);
         }
         return null;
     }
     
     public Object visitParameterDecl(ParameterDecl pd, String arg){
         show(arg, pd);
-        pd.type.visit(this, indent(arg));
-        show(indent(arg), quote(pd.name) + "parametername ");
+        _traversal.visit(pd.type, indent(arg));
+        showLater(indent(arg), quote(pd.name) + "parametername ");
         return null;
     } 
     
     public Object visitVarDecl(VarDecl vd, String arg){
         show(arg, vd);
-        vd.type.visit(this, indent(arg));
-        show(indent(arg), quote(vd.name) + " varname");
+        _traversal.visit(vd.type, indent(arg));
+        showLater(indent(arg), quote(vd.name) + " varname");
         return null;
     }
  
@@ -162,13 +178,13 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitClassType(ClassType ct, String arg){
         show(arg, ct);
-        ct.className.visit(this, indent(arg));
+        _traversal.visit(ct.className, indent(arg));
         return null;
     }
     
     public Object visitArrayType(ArrayType type, String arg){
         show(arg, type);
-        type.eltType.visit(this, indent(arg));
+        _traversal.visit(type.eltType, indent(arg));
         return null;
     }
     
@@ -185,41 +201,41 @@ public class ASTDisplay implements Visitor<String,Object> {
         show(arg,"  StatementList [" + sl.size() + "]");
         String pfx = arg + "  . ";
         for (Statement s: sl) {
-        	s.visit(this, pfx);
+        	_traversal.visit(s, pfx);
         }
         return null;
     }
     
     public Object visitVardeclStmt(VarDeclStmt stmt, String arg){
         show(arg, stmt);
-        stmt.varDecl.visit(this, indent(arg));	
-        stmt.initExp.visit(this, indent(arg));
+        _traversal.visit(stmt.varDecl, indent(arg));	
+        _traversal.visit(stmt.initExp, indent(arg));
         return null;
     }
     
     public Object visitAssignStmt(AssignStmt stmt, String arg){
         show(arg,stmt);
-        stmt.ref.visit(this, indent(arg));
-        stmt.val.visit(this, indent(arg));
+        _traversal.visit(stmt.ref, indent(arg));
+        _traversal.visit(stmt.val, indent(arg));
         return null;
     }
     
     public Object visitIxAssignStmt(IxAssignStmt stmt, String arg){
         show(arg,stmt);
-        stmt.ref.visit(this, indent(arg));
-        stmt.ix.visit(this, indent(arg));
-        stmt.exp.visit(this, indent(arg));
+        _traversal.visit(stmt.ref, indent(arg));
+        _traversal.visit(stmt.ix, indent(arg));
+        _traversal.visit(stmt.exp, indent(arg));
         return null;
     }
         
     public Object visitCallStmt(CallStmt stmt, String arg){
         show(arg,stmt);
-        stmt.methodRef.visit(this, indent(arg));
+        _traversal.visit(stmt.methodRef, indent(arg));
         ExprList al = stmt.argList;
-        show(arg,"  ExprList [" + al.size() + "]");
+        showLater(arg,"  ExprList [" + al.size() + "]");
         String pfx = arg + "  . ";
         for (Expression e: al) {
-            e.visit(this, pfx);
+            _traversal.visit(e, pfx);
         }
         return null;
     }
@@ -227,23 +243,23 @@ public class ASTDisplay implements Visitor<String,Object> {
     public Object visitReturnStmt(ReturnStmt stmt, String arg){
         show(arg,stmt);
          if (stmt.returnExpr != null)
-            stmt.returnExpr.visit(this, indent(arg));
+            _traversal.visit(stmt.returnExpr, indent(arg));
         return null;
     }
     
     public Object visitIfStmt(IfStmt stmt, String arg){
         show(arg,stmt);
-        stmt.cond.visit(this, indent(arg));
-        stmt.thenStmt.visit(this, indent(arg));
+        _traversal.visit(stmt.cond, indent(arg));
+        _traversal.visit(stmt.thenStmt, indent(arg));
         if (stmt.elseStmt != null)
-            stmt.elseStmt.visit(this, indent(arg));
+            _traversal.visit(stmt.elseStmt, indent(arg));
         return null;
     }
     
     public Object visitWhileStmt(WhileStmt stmt, String arg){
         show(arg, stmt);
-        stmt.cond.visit(this, indent(arg));
-        stmt.body.visit(this, indent(arg));
+        _traversal.visit(stmt.cond, indent(arg));
+        _traversal.visit(stmt.body, indent(arg));
         return null;
     }
     
@@ -256,60 +272,60 @@ public class ASTDisplay implements Visitor<String,Object> {
 
     public Object visitUnaryExpr(UnaryExpr expr, String arg){
         show(arg, expr);
-        expr.operator.visit(this, indent(arg));
-        expr.expr.visit(this, indent(indent(arg)));
+        _traversal.visit(expr.operator, indent(arg));
+        _traversal.visit(expr.expr, indent(indent(arg)));
         return null;
     }
     
     public Object visitBinaryExpr(BinaryExpr expr, String arg){
         show(arg, expr);
-        expr.operator.visit(this, indent(arg));
-        expr.left.visit(this, indent(indent(arg)));
-        expr.right.visit(this, indent(indent(arg)));
+        _traversal.visit(expr.operator, indent(arg));
+        _traversal.visit(expr.left, indent(indent(arg)));
+        _traversal.visit(expr.right, indent(indent(arg)));
         return null;
     }
     
     public Object visitRefExpr(RefExpr expr, String arg){
         show(arg, expr);
-        expr.ref.visit(this, indent(arg));
+        _traversal.visit(expr.ref, indent(arg));
         return null;
     }
     
     public Object visitIxExpr(IxExpr ie, String arg){
         show(arg, ie);
-        ie.ref.visit(this, indent(arg));
-        ie.ixExpr.visit(this, indent(arg));
+        _traversal.visit(ie.ref, indent(arg));
+        _traversal.visit(ie.ixExpr, indent(arg));
         return null;
     }
     
     public Object visitCallExpr(CallExpr expr, String arg){
         show(arg, expr);
-        expr.functionRef.visit(this, indent(arg));
+        _traversal.visit(expr.functionRef, indent(arg));
         ExprList al = expr.argList;
-        show(arg,"  ExprList + [" + al.size() + "]");
+        showLater(arg,"  ExprList + [" + al.size() + "]");
         String pfx = arg + "  . ";
         for (Expression e: al) {
-            e.visit(this, pfx);
+            _traversal.visit(e, pfx);
         }
         return null;
     }
     
     public Object visitLiteralExpr(LiteralExpr expr, String arg){
         show(arg, expr);
-        expr.lit.visit(this, indent(arg));
+        _traversal.visit(expr.lit, indent(arg));
         return null;
     }
  
     public Object visitNewArrayExpr(NewArrayExpr expr, String arg){
         show(arg, expr);
-        expr.eltType.visit(this, indent(arg));
-        expr.sizeExpr.visit(this, indent(arg));
+        _traversal.visit(expr.eltType, indent(arg));
+        _traversal.visit(expr.sizeExpr, indent(arg));
         return null;
     }
     
     public Object visitNewObjectExpr(NewObjectExpr expr, String arg){
         show(arg, expr);
-        expr.classtype.visit(this, indent(arg));
+        _traversal.visit(expr.classtype, indent(arg));
         return null;
     }
     
@@ -327,14 +343,14 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitIdRef(IdRef ref, String arg) {
     	show(arg,ref);
-    	ref.id.visit(this, indent(arg));
+    	_traversal.visit(ref.id, indent(arg));
     	return null;
     }
         
     public Object visitQRef(QualRef qr, String arg) {
     	show(arg, qr);
-    	qr.id.visit(this, indent(arg));
-    	qr.ref.visit(this, indent(arg));
+    	_traversal.visit(qr.id, indent(arg));
+    	_traversal.visit(qr.ref, indent(arg));
 	    return null;
     }
       
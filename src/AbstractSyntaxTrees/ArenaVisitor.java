@@ -0,0 +1,57 @@
+package miniJava.AbstractSyntaxTrees;
+
+/**
+ * The Visitor of an ASTArena: one visitX per AST class X, as in Visitor, but
+ * given the index of a node in the arena instead of an AST object. Run one
+ * with ASTArena.accept(node, visitor, arg); the kind of the node picks the
+ * method, and the accessors of the arena read everything else about it.
+ */
+public interface ArenaVisitor<ArgType,ResultType> {
+
+  // Package
+    public ResultType visitPackage(int prog, ArgType arg);
+
+  // Declarations
+    public ResultType visitClassDecl(int cd, ArgType arg);
+    public ResultType visitFieldDecl(int fd, ArgType arg);
+    public ResultType visitMethodDecl(int md, ArgType arg);
+    public ResultType visitParameterDecl(int pd, ArgType arg);
+    public ResultType visitVarDecl(int decl, ArgType arg);
+
+  // Types
+    public ResultType visitBaseType(int type, ArgType arg);
+    public ResultType visitClassType(int type, ArgType arg);
+    public ResultType visitArrayType(int type, ArgType arg);
+
+  // Statements
+    public ResultType visitBlockStmt(int stmt, ArgType arg);
+    public ResultType visitVardeclStmt(int stmt, ArgType arg);
+    public ResultType visitAssignStmt(int stmt, ArgType arg);
+    public ResultType visitIxAssignStmt(int stmt, ArgType arg);
+    public ResultType visitCallStmt(int stmt, ArgType arg);
+    public ResultType visitReturnStmt(int stmt, ArgType arg);
+    public ResultType visitIfStmt(int stmt, ArgType arg);
+    public ResultType visitWhileStmt(int stmt, ArgType arg);
+
+  // Expressions
+    public ResultType visitUnaryExpr(int expr, ArgType arg);
+    public ResultType visitBinaryExpr(int expr, ArgType arg);
+    public ResultType visitRefExpr(int expr, ArgType arg);
+    public ResultType visitIxExpr(int expr, ArgType arg);
+    public ResultType visitCallExpr(int expr, ArgType arg);
+    public ResultType visitLiteralExpr(int expr, ArgType arg);
+    public ResultType visitNewObjectExpr(int expr, ArgType arg);
+    public ResultType visitNewArrayExpr(int expr, ArgType arg);
+
+  // References
+    public ResultType visitThisRef(int ref, ArgType arg);
+    public ResultType visitIdRef(int ref, ArgType arg);
+    public ResultType visitQRef(int ref, ArgType arg);
+
+  // Terminals
+    public ResultType visitIdentifier(int id, ArgType arg);
+    public ResultType visitOperator(int op, ArgType arg);
+    public ResultType visitIntLiteral(int num, ArgType arg);
+    public ResultType visitBooleanLiteral(int bool, ArgType arg);
+    public ResultType visitNullLiteral(int nul, ArgType arg);
+}
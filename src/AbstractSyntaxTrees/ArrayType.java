@@ -8,10 +8,11 @@ package miniJava.AbstractSyntaxTrees;
 
 import miniJava.SyntacticAnalyzer.SourcePosition;
 
+// Canonical, see Types
 public class ArrayType extends TypeDenoter {
 
-	    public ArrayType(TypeDenoter eltType, SourcePosition posn){
-	        super(TypeKind.ARRAY, posn);
+	    ArrayType(TypeDenoter eltType){
+	        super(TypeKind.ARRAY, SourcePosition.NONE);
 	        this.eltType = eltType;
 	    }
 	        
@@ -19,6 +20,6 @@ public class ArrayType extends TypeDenoter {
 	        return v.visitArrayType(this, o);
 	    }
 
-	    public TypeDenoter eltType;
+	    public final TypeDenoter eltType;
 	}
 
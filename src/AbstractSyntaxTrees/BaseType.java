@@ -7,10 +7,11 @@ package miniJava.AbstractSyntaxTrees;
 
 import miniJava.SyntacticAnalyzer.SourcePosition;
 
+// Canonical, see Types
 public class BaseType extends TypeDenoter
 {
-    public BaseType(TypeKind t, SourcePosition posn){
-        super(t, posn);
+    BaseType(TypeKind t){
+        super(t, SourcePosition.NONE);
     }
     
     public <A,R> R visit(Visitor<A,R> v, A o) {
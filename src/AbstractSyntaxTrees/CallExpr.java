@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class CallExpr extends Expression
 {
-    public CallExpr(Reference f, ExprList el, SourcePosition posn){
+    public CallExpr(Reference f, ExprList el, long posn){
         super(posn);
         functionRef = f;
         argList = el;
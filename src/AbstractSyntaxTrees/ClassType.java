@@ -7,10 +7,11 @@ package miniJava.AbstractSyntaxTrees;
 
 import miniJava.SyntacticAnalyzer.SourcePosition;
 
+// Canonical, see Types
 public class ClassType extends TypeDenoter
 {
-    public ClassType(Identifier cn, SourcePosition posn){
-        super(TypeKind.CLASS, posn);
+    ClassType(Identifier cn){
+        super(TypeKind.CLASS, SourcePosition.NONE);
         className = cn;
     }
             
@@ -18,5 +19,5 @@ public class ClassType extends TypeDenoter
         return v.visitClassType(this, o);
     }
 
-    public Identifier className;
+    public final Identifier className;
 }
@@ -5,16 +5,15 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Declaration extends AST {
 	
-	public Declaration(String name, TypeDenoter type, SourcePosition posn) {
+	public Declaration(String name, TypeDenoter type, long posn) {
 		super(posn);
 		this.name = name;
 		this.type = type;
 	}
 	
+	// canonical spelling shared with every Identifier naming this declaration
 	public String name;
 	public TypeDenoter type;
 }
@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import  miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Expression extends AST {
 
-  public Expression(SourcePosition posn) {
+  public Expression(long posn) {
     super (posn);
   }
   
@@ -5,26 +5,24 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class FieldDecl extends MemberDecl {
 	public String className;
 	
-	public FieldDecl(boolean isPrivate, boolean isStatic, TypeDenoter t, String name, SourcePosition posn){
+	public FieldDecl(boolean isPrivate, boolean isStatic, TypeDenoter t, String name, long posn){
     super(isPrivate, isStatic, t, name, posn);
 	}
 
-	public FieldDecl(boolean isPrivate, boolean isStatic, TypeDenoter t, String name, SourcePosition posn, String c) {
+	public FieldDecl(boolean isPrivate, boolean isStatic, TypeDenoter t, String name, long posn, String c) {
 		super(isPrivate, isStatic, t, name, posn);
 		className = c;
 	}
 	
-	public FieldDecl(MemberDecl md, SourcePosition posn, String c) {
+	public FieldDecl(MemberDecl md, long posn, String c) {
 		super(md,posn);
 		this.className = c;
 	}
 
-	public FieldDecl(MemberDecl md, SourcePosition posn) {
+	public FieldDecl(MemberDecl md, long posn) {
 		super(md, posn);
 	}
 	
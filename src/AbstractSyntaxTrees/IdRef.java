@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IdRef extends BaseRef {
 	
-	public IdRef(Identifier id, SourcePosition posn){
+	public IdRef(Identifier id, long posn){
 		super(posn);
 		this.id = id;
 	}
@@ -19,4 +17,7 @@ public class IdRef extends BaseRef {
 	}
 
 	public Identifier id;
+	// Set by Identification: the local, parameter, member or, as the qualifier
+	//  of a QualRef, the class the name stands for. null if it stands for nothing.
+	public Declaration decl;
 }
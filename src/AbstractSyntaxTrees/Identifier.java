@@ -9,6 +9,8 @@ import miniJava.SyntacticAnalyzer.Token;
 
 public class Identifier extends Terminal {
   public Token type;
+  // Set by Identification for the identifier of an IdRef or QualRef, as its decl
+  public Declaration decl;
 
   public Identifier (Token t) {
     super (t);
@@ -5,18 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IfStmt extends Statement
 {
-    public IfStmt(Expression b, Statement t, Statement e, SourcePosition posn){
+    public IfStmt(Expression b, Statement t, Statement e, long posn){
         super(posn);
         cond = b;
         thenStmt = t;
         elseStmt = e;
     }
     
-    public IfStmt(Expression b, Statement t, SourcePosition posn){
+    public IfStmt(Expression b, Statement t, long posn){
         super(posn);
         cond = b;
         thenStmt = t;
@@ -11,9 +11,13 @@ public class IntLiteral extends Terminal {
 
   public IntLiteral(Token t) {
     super(t);
+    value = t.getTokenValue();
   }
  
   public <A,R> R visit(Visitor<A,R> v, A o) {
       return v.visitIntLiteral(this, o);
   }
+
+  // decoded by the scanner, so nobody needs to parse spelling again
+  public int value;
 }
\ No newline at end of file
@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IxAssignStmt extends Statement
 {
-    public IxAssignStmt(Reference r, Expression i, Expression e, SourcePosition posn){
+    public IxAssignStmt(Reference r, Expression i, Expression e, long posn){
         super(posn);
         ref = r;
         ix  = i;
@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class IxExpr extends Expression {
 
-public IxExpr(Reference r, Expression e, SourcePosition posn){
+public IxExpr(Reference r, Expression e, long posn){
     super(posn);
     ref = r;
     ixExpr = e;
@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class LocalDecl extends Declaration {
 	
-	public LocalDecl(String name, TypeDenoter t, SourcePosition posn){
+	public LocalDecl(String name, TypeDenoter t, long posn){
 		super(name,t,posn);
 	}
 
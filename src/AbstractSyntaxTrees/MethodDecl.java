@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class MethodDecl extends MemberDecl {
 	
-	public MethodDecl(MemberDecl md, ParameterDeclList pl, StatementList sl, SourcePosition posn){
+	public MethodDecl(MemberDecl md, ParameterDeclList pl, StatementList sl, long posn){
     super(md,posn);
     parameterDeclList = pl;
     statementList = sl;
@@ -21,4 +19,7 @@ public class MethodDecl extends MemberDecl {
 	
 	public ParameterDeclList parameterDeclList;
 	public StatementList statementList;
+	// Statements of the body were left out after syntax errors, so the body is
+	//  not analyzed
+	public boolean isIncomplete;
 }
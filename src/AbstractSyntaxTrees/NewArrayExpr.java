@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class NewArrayExpr extends NewExpr
 {
-    public NewArrayExpr(TypeDenoter et, Expression e, SourcePosition posn){
+    public NewArrayExpr(TypeDenoter et, Expression e, long posn){
         super(posn);
         eltType = et;
         sizeExpr = e;
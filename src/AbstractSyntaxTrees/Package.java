@@ -5,13 +5,12 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class Package extends AST {
 
-  public Package(ClassDeclList cdl, SourcePosition posn) {
+  public Package(ClassDeclList cdl, long posn, Types types) {
     super(posn);
     classDeclList = cdl;
+    this.types = types;
   }
     
     public <A,R> R visit(Visitor<A,R> v, A o) {
@@ -19,4 +18,6 @@ public class Package extends AST {
     }
 
     public ClassDeclList classDeclList;
+    // Where every type of the program comes from
+    public final Types types;
 }
@@ -5,16 +5,14 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class ParameterDecl extends LocalDecl {
 	public String className;
 	
-	public ParameterDecl(TypeDenoter t, String name, SourcePosition posn){
+	public ParameterDecl(TypeDenoter t, String name, long posn){
 		super(name, t, posn);
 	}
 
-	public ParameterDecl(TypeDenoter t, String name, SourcePosition posn, String c) {
+	public ParameterDecl(TypeDenoter t, String name, long posn, String c) {
 		super(name, t, posn);
 		this.className = c;
 	}
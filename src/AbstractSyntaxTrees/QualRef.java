@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class QualRef extends Reference {
 	
-	public QualRef(Reference ref, Identifier id, SourcePosition posn){
+	public QualRef(Reference ref, Identifier id, long posn){
 		super(posn);
 		this.ref = ref;
 		this.id  = id;
@@ -22,4 +20,7 @@ public class QualRef extends Reference {
 
 	public Reference ref;
 	public Identifier id;
+	// Set by Identification: the member id names, and the class that declares it
+	public Declaration decl;
+	public ClassDecl classDecl;
 }
@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import  miniJava.SyntacticAnalyzer.SourcePosition;
-
 public abstract class Statement extends AST {
 
-  public Statement(SourcePosition posn) {
+  public Statement(long posn) {
     super (posn);
   }
 
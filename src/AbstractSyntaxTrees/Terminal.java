@@ -17,5 +17,6 @@ abstract public class Terminal extends AST {
   }
 
   public TokenType kind;
+  // identifier spellings are canonical (see NameTable), compare them with ==
   public String spelling;
 }
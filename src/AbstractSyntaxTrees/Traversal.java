@@ -0,0 +1,165 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Runs a Visitor over a tree from a worklist instead of the Java stack, so a pass
+ * goes as deep as the source nests, whatever the size of the thread's stack.
+ *
+ * A visit method run this way does not visit the children of its node itself.
+ * It schedules them with visit(), together with steps, then(), for whatever it
+ * does between and after them. Once the method returns, what it scheduled runs
+ * in the order it was scheduled, ahead of anything its parent scheduled after
+ * it; a step can schedule more of the same, which runs right after the step.
+ *
+ * The result of a node is what its last step returned, or what its visit method
+ * returned if it scheduled no step. A step reads the results of the visits its
+ * node scheduled before it with result(i), the first of them being result(0).
+ */
+public final class Traversal<ArgType, ResultType> {
+    public interface Step<ResultType> {
+        ResultType run();
+    }
+
+    private final Visitor<ArgType, ResultType> _visitor;
+    // what is left to do, the next item last: a Visit, a Then, or the Frame of a
+    //  node whose work is all done
+    private final List<Object> _work = new ArrayList<Object>();
+    private final List<ResultType> _results = new ArrayList<ResultType>();
+    private final List<Object> _scheduled = new ArrayList<Object>();
+    private Frame<ResultType> _frame;
+
+    public Traversal(Visitor<ArgType, ResultType> visitor) {
+        _visitor = visitor;
+    }
+
+    /**
+     * visit ast and everything its visit schedules, which a visit method may
+     * also do for a tree of its own
+     * @return the result of ast
+     */
+    public ResultType run(AST ast, ArgType arg) {
+        int work = _work.size();
+        int results = _results.size();
+        Frame<ResultType> frame = _frame;
+        List<Object> scheduled = new ArrayList<Object>(_scheduled);
+
+        _scheduled.clear();
+
+        try {
+            _work.add(new Visit<ArgType>(ast, arg));
+
+            while (_work.size() > work) {
+                Object item = _work.remove(_work.size() - 1);
+
+                if (item instanceof Visit) {
+                    @SuppressWarnings("unchecked")
+                    Visit<ArgType> visit = (Visit<ArgType>) item;
+                    _frame = new Frame<ResultType>(_results.size());
+                    _frame.result = visit.node.visit(_visitor, visit.arg);
+                    schedule(true);
+                } else if (item instanceof Then) {
+                    @SuppressWarnings("unchecked")
+                    Then<ResultType> then = (Then<ResultType>) item;
+                    _frame = then.frame;
+                    _frame.result = then.step.run();
+                    schedule(false);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    Frame<ResultType> done = (Frame<ResultType>) item;
+                    finish(done);
+                }
+            }
+
+            return _results.remove(_results.size() - 1);
+        } finally {
+            // an exception leaves the rest of the work undone
+            truncate(_work, work);
+            truncate(_results, results);
+            _scheduled.clear();
+            _scheduled.addAll(scheduled);
+            _frame = frame;
+        }
+    }
+
+    /**
+     * schedule a visit of ast
+     */
+    public void visit(AST ast, ArgType arg) {
+        _scheduled.add(new Visit<ArgType>(ast, arg));
+    }
+
+    /**
+     * schedule step, in the node being visited
+     */
+    public void then(Step<ResultType> step) {
+        _scheduled.add(new Then<ResultType>(step, _frame));
+    }
+
+    /**
+     * the result of the i-th visit the node being visited scheduled
+     */
+    public ResultType result(int i) {
+        return _results.get(_frame.base + i);
+    }
+
+    // puts what was scheduled on the worklist, behind the end of its node if a
+    //  visit method scheduled it
+    private void schedule(boolean visited) {
+        if (visited && _scheduled.isEmpty()) {
+            finish(_frame);
+            return;
+        }
+
+        if (visited) {
+            _work.add(_frame);
+        }
+
+        for (int i = _scheduled.size() - 1; i >= 0; i--) {
+            _work.add(_scheduled.get(i));
+        }
+
+        _scheduled.clear();
+    }
+
+    // the results of the children of a finished node make way for its own
+    private void finish(Frame<ResultType> frame) {
+        truncate(_results, frame.base);
+        _results.add(frame.result);
+    }
+
+    private static void truncate(List<?> list, int size) {
+        list.subList(size, list.size()).clear();
+    }
+
+    private static final class Visit<ArgType> {
+        final AST node;
+        final ArgType arg;
+
+        Visit(AST node, ArgType arg) {
+            this.node = node;
+            this.arg = arg;
+        }
+    }
+
+    private static final class Then<ResultType> {
+        final Step<ResultType> step;
+        final Frame<ResultType> frame;
+
+        Then(Step<ResultType> step, Frame<ResultType> frame) {
+            this.step = step;
+            this.frame = frame;
+        }
+    }
+
+    // a node being visited: where the results of its children start, and its own
+    private static final class Frame<ResultType> {
+        final int base;
+        ResultType result;
+
+        Frame(int base) {
+            this.base = base;
+        }
+    }
+}
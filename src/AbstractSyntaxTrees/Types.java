@@ -0,0 +1,58 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import miniJava.SyntacticAnalyzer.SourcePosition;
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+// The one TypeDenoter of every distinct type of a program: int, boolean, Foo,
+//  Foo[], and so on. The types of a program are only made by its Types, so two of
+//  them are the same exactly when they are the same object, and a program holds
+//  as many type objects as it has distinct types, not one per place a type is
+//  written.
+//
+// Every program has a Types of its own, see Package.types, which the parsers,
+//  decoders and passes that work on it share, on any number of threads, and
+//  which goes away with the program. Only the base types are the same in every
+//  program, since there are no more of them than there are TypeKinds. Types are
+//  shared by every use, so they have no position of their own; a diagnostic about
+//  a type points at the declaration or expression that uses it.
+public final class Types {
+	private static final BaseType[] BASE = new BaseType[TypeKind.values().length];
+
+	private final ConcurrentHashMap<String, ClassType> _classes = new ConcurrentHashMap<String, ClassType>();
+	private final ConcurrentHashMap<TypeDenoter, ArrayType> _arrays = new ConcurrentHashMap<TypeDenoter, ArrayType>();
+
+	static {
+		for (TypeKind kind : TypeKind.values()) {
+			if (kind != TypeKind.CLASS && kind != TypeKind.ARRAY) {
+				BASE[kind.ordinal()] = new BaseType(kind);
+			}
+		}
+	}
+
+	public static BaseType base(TypeKind kind) {
+		BaseType type = BASE[kind.ordinal()];
+
+		if (type == null) {
+			throw new IllegalArgumentException(kind + " is not a base type");
+		}
+
+		return type;
+	}
+
+	public ClassType classType(String name) {
+		ClassType type = _classes.get(name);
+
+		return type != null ? type : _classes.computeIfAbsent(name.intern(),
+				n -> new ClassType(new Identifier(new Token(TokenType.ID, n, SourcePosition.NONE))));
+	}
+
+	// Arrays of eltType, which has to come from base() or this Types itself
+	public ArrayType arrayOf(TypeDenoter eltType) {
+		ArrayType type = _arrays.get(eltType);
+
+		return type != null ? type : _arrays.computeIfAbsent(eltType, ArrayType::new);
+	}
+}
@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class UnaryExpr extends Expression
 {
-    public UnaryExpr(Operator o, Expression e, SourcePosition posn){
+    public UnaryExpr(Operator o, Expression e, long posn){
         super(posn);
         operator = o;
         expr = e;
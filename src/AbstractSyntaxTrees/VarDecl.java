@@ -5,16 +5,14 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class VarDecl extends LocalDecl {
 	public String className;
 	
-	public VarDecl(TypeDenoter t, String name, SourcePosition posn) {
+	public VarDecl(TypeDenoter t, String name, long posn) {
 		super(name, t, posn);
 	}
 
-	public VarDecl(TypeDenoter t, String name, SourcePosition posn, String c) {
+	public VarDecl(TypeDenoter t, String name, long posn, String c) {
 		super(name, t, posn);
 		this.className = c;
 	}
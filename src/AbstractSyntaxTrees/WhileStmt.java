@@ -5,11 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import miniJava.SyntacticAnalyzer.SourcePosition;
-
 public class WhileStmt extends Statement
 {
-    public WhileStmt(Expression e, Statement s, SourcePosition posn){
+    public WhileStmt(Expression e, Statement s, long posn){
         super(posn);
         cond = e;
         body = s;
@@ -15,6 +15,26 @@ public class CodeGenerator implements Visitor<Object, Object> {
 	}
 	
 	public void parse(Package prog) {
+		generate(prog);
+		
+		// Output the file "a.out" if no errors
+		if( !_errors.hasErrors() )
+			makeElf("a.out");
+	}
+	
+	// Only builds the code section; makeElf writes it out
+	public void generate(Package prog) {
+		start();
+		prog.visit(this,null);
+	}
+	
+	// Code for a program that arrives one class at a time: start(), then
+	//  generate() every class in order. visitPackage is not run for it.
+	public void generate(ClassDecl cd) {
+		cd.visit(this,null);
+	}
+	
+	public void start() {
 		_asm = new InstructionList();
 		
 		// If you haven't refactored the name "ModRMSIB" to something like "R",
@@ -59,12 +79,6 @@ public class CodeGenerator implements Visitor<Object, Object> {
 		// patch method 2: let the jmp calculate the offset
 		//  Note the false means that it is a 32-bit immediate for jumping (an int)
 		//     _asm.patch( someJump.listIdx, new Jmp(asm.size(), someJump.startAddress, false) );
-		
-		prog.visit(this,null);
-		
-		// Output the file "a.out" if no errors
-		if( !_errors.hasErrors() )
-			makeElf("a.out");
 	}
 
 	@Override
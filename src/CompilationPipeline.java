@@ -0,0 +1,382 @@
+package miniJava;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.CodeGeneration.CodeGenerator;
+import miniJava.ContextualAnalysis.Identification;
+import miniJava.ContextualAnalysis.TypeChecking;
+import miniJava.SyntacticAnalyzer.NameTable;
+import miniJava.SyntacticAnalyzer.ParallelLexer;
+import miniJava.SyntacticAnalyzer.ParallelParser;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.PipelinedScanner;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+import miniJava.SyntacticAnalyzer.TokenSource;
+
+// Runs a compilation as a sequence of named stages, each of which picks up what
+//  the ones before it left in a Unit: scan, parse, identify, typecheck, codegen
+//  and elf, with load and store around scanning and parsing when there is an
+//  ASTCache.
+//
+// In streaming mode, declare and bodies come before scan: they scan and compile
+//  the program one class at a time from the source with StreamingCompilation,
+//  and the ordinary stages after them only run if that reported any error, to
+//  compile it again with the diagnostics of an ordinary run. bodies only generates code if
+//  the run goes on to codegen. The tree it leaves has no method bodies, so a
+//  streaming pipeline takes no added stages after it.
+//
+// Every stage is timed on its own. The run ends at the first stage that reports
+//  errors, except that the scanner and the parser recover from theirs and still
+//  leave a tree, so contextual analysis runs on it and reports what it finds as
+//  well. Stages that need a program without errors, such as code generation, are
+//  not run after a recovered error either. stopAfter() selects which phases run;
+//  a run that ends after parse still stores its tree, since store only finishes
+//  that stage. add() and addAfter() take later stages, such as building an IR or
+//  an optimization pass, without the driver having to change.
+//
+// A streaming scanner only scans as the parser pulls tokens, so unless the
+//  source is large enough to be tokenized ahead of time its time counts as part
+//  of "parse". So does the time of a scanner thread, see pipelineScanning().
+public final class CompilationPipeline {
+	public static final String LOAD = "load";
+	public static final String SCAN = "scan";
+	public static final String DECLARE = "declare";
+	public static final String BODIES = "bodies";
+	public static final String PARSE = "parse";
+	public static final String STORE = "store";
+	public static final String IDENTIFY = "identify";
+	public static final String TYPECHECK = "typecheck";
+	public static final String CODEGEN = "codegen";
+	public static final String ELF = "elf";
+
+	// Below this size scanning and parsing on other threads costs more than it saves
+	private static final int PIPELINE_THRESHOLD = 1 << 20;
+
+	// Everything the stages of one run hand on to each other
+	public static final class Unit {
+		public final SourceBuffer source;
+		// Left by scan: either all of the tokens, or a scanner to pull them from,
+		//  which also reports the scan errors as the parser gets to them
+		public TokenBuffer tokens;
+		public TokenSource scanner;
+		// SourceBuffer.contentHash() of the source, if there is a cache
+		public String hash;
+		// Set if prog was loaded from the cache instead of parsed
+		public boolean cached;
+		// Set if the program was compiled class by class. prog only has the
+		//  class heads then, since each body is dropped once it is compiled.
+		public boolean streamed;
+		public Package prog;
+		public CodeGenerator code;
+		StreamingCompilation stream;
+
+		public Unit(SourceBuffer source) {
+			this.source = source;
+		}
+
+		private void close() {
+			if (scanner instanceof PipelinedScanner) {
+				((PipelinedScanner) scanner).close();
+			}
+		}
+	}
+
+	public interface Stage {
+		void run(Unit unit, ErrorReporter errors);
+	}
+
+	private static final class Step {
+		final String name;
+		final Stage stage;
+		// Its errors do not end the run
+		final boolean recovers;
+		// Runs on what a recovering stage left behind
+		final boolean tolerant;
+		// Finishes the stage before it, so it also runs when a run ends there
+		final boolean attached;
+		long nanos = -1;
+
+		Step(String name, Stage stage, boolean recovers, boolean tolerant, boolean attached) {
+			this.name = name;
+			this.stage = stage;
+			this.recovers = recovers;
+			this.tolerant = tolerant;
+			this.attached = attached;
+		}
+	}
+
+	private final List<Step> _steps = new ArrayList<Step>();
+	private final boolean _streaming;
+	private boolean _pipelined;
+	private String _last;
+	private String _output = "a.out";
+
+	private CompilationPipeline(boolean streaming) {
+		this._streaming = streaming;
+	}
+
+	// The whole compilation, down to writing the ELF file, using cache if it is
+	//  not null
+	public static CompilationPipeline standard(ASTCache cache) {
+		return build(cache, false);
+	}
+
+	// The same in streaming mode. A program compiled class by class is never
+	//  stored in the cache, since its bodies are gone by then.
+	public static CompilationPipeline streaming(ASTCache cache) {
+		return build(cache, true);
+	}
+
+	private static CompilationPipeline build(ASTCache cache, boolean streaming) {
+		CompilationPipeline pipeline = new CompilationPipeline(streaming);
+
+		if (cache != null) {
+			pipeline.add(LOAD, (unit, errors) -> load(cache, unit), false, false);
+		}
+
+		if (streaming) {
+			pipeline.add(DECLARE, CompilationPipeline::declare, false, false);
+			pipeline.add(BODIES, pipeline::compileBodies, false, false);
+		}
+
+		pipeline.add(SCAN, unlessStreamed(pipeline::scan), true, true);
+		pipeline.add(PARSE, unlessStreamed(CompilationPipeline::parse), true, true);
+
+		if (cache != null) {
+			pipeline.attach(STORE, (unit, errors) -> store(cache, unit, errors));
+		}
+
+		pipeline.add(IDENTIFY, unlessStreamed((unit, errors) -> new Identification(errors).parse(unit.prog)), false, true);
+		pipeline.add(TYPECHECK, unlessStreamed((unit, errors) -> new TypeChecking(errors).parse(unit.prog)), false, true);
+		pipeline.add(CODEGEN, unlessStreamed(CompilationPipeline::generate), false, false);
+		pipeline.add(ELF, (unit, errors) -> unit.code.makeElf(pipeline._output), false, false);
+
+		return pipeline;
+	}
+
+	private static Stage unlessStreamed(Stage stage) {
+		return (unit, errors) -> {
+			if (!unit.streamed) {
+				stage.run(unit, errors);
+			}
+		};
+	}
+
+	// Adds stage to the end of the pipeline
+	public CompilationPipeline add(String name, Stage stage) {
+		checkPlace(name, _steps.size());
+		return add(name, stage, false, false);
+	}
+
+	// Adds stage right after the one called after and the steps that finish it
+	public CompilationPipeline addAfter(String after, String name, Stage stage) {
+		int index = indexOf(after) + 1;
+
+		while (index < _steps.size() && _steps.get(index).attached) {
+			index++;
+		}
+
+		checkPlace(name, index);
+		_steps.add(index, new Step(name, stage, false, false, false));
+		return this;
+	}
+
+	// Ends every run after the stage called name, and the steps that finish it
+	public CompilationPipeline stopAfter(String name) {
+		indexOf(name);
+		_last = name;
+		return this;
+	}
+
+	// Writes the ELF file to file instead of a.out
+	public CompilationPipeline output(String file) {
+		_output = file;
+		return this;
+	}
+
+	// Scans on a PipelinedScanner, a thread of its own that runs ahead of the
+	//  parser, instead of tokenizing the source before parsing starts. A
+	//  streaming pipeline only scans this way if it compiles the program again
+	//  the ordinary way.
+	public CompilationPipeline pipelineScanning() {
+		_pipelined = true;
+		return this;
+	}
+
+	public Unit run(SourceBuffer source, ErrorReporter errors) {
+		Unit unit = new Unit(source);
+
+		for (Step step : _steps) {
+			step.nanos = -1;
+		}
+
+		try {
+			boolean stopping = false;
+
+			for (Step step : _steps) {
+				if (stopping && !step.attached) {
+					break;
+				}
+
+				if (errors.hasErrors() && !step.tolerant) {
+					break;
+				}
+
+				int reported = errors.getErrorCount();
+				long start = System.nanoTime();
+
+				step.stage.run(unit, errors);
+				step.nanos = System.nanoTime() - start;
+
+				if (errors.getErrorCount() > reported && !step.recovers) {
+					break;
+				}
+
+				if (step.name.equals(_last)) {
+					stopping = true;
+				}
+			}
+		} finally {
+			unit.close();
+		}
+
+		return unit;
+	}
+
+	// Nanoseconds the stage called name took in the last run, or -1 if it did not run
+	public long getTime(String name) {
+		return _steps.get(indexOf(name)).nanos;
+	}
+
+	public void outputTimes(PrintStream out) {
+		for (Step step : _steps) {
+			if (step.nanos >= 0) {
+				out.printf("%-10s %8.1f ms%n", step.name, step.nanos / 1e6);
+			}
+		}
+	}
+
+	private CompilationPipeline add(String name, Stage stage, boolean recovers, boolean tolerant) {
+		_steps.add(new Step(name, stage, recovers, tolerant, false));
+		return this;
+	}
+
+	// Adds stage to finish the last one; it runs on what a recovering stage left
+	private void attach(String name, Stage stage) {
+		_steps.add(new Step(name, stage, false, true, true));
+	}
+
+	// A stage after bodies would see a streamed program without its method bodies
+	private void checkPlace(String name, int index) {
+		if (_streaming && index > indexOf(BODIES)) {
+			throw new IllegalStateException("A streaming pipeline has no method bodies after "
+					+ BODIES + ", so " + name + " has to come before it");
+		}
+	}
+
+	// Whether a run goes on to the stage called name
+	private boolean reaches(String name) {
+		return _last == null || indexOf(name) <= indexOf(_last);
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < _steps.size(); i++) {
+			if (_steps.get(i).name.equals(name)) {
+				return i;
+			}
+		}
+
+		throw new IllegalArgumentException("No stage " + name);
+	}
+
+	private static void load(ASTCache cache, Unit unit) {
+		unit.hash = unit.source.contentHash();
+		unit.prog = cache.load(unit.hash);
+		unit.cached = unit.prog != null;
+	}
+
+	// A large source is tokenized in parallel pieces
+	private void scan(Unit unit, ErrorReporter errors) {
+		if (unit.cached) {
+			return;
+		}
+
+		boolean large = isLarge(unit.source);
+
+		if (_pipelined) {
+			unit.scanner = new PipelinedScanner(unit.source, errors);
+		} else if (large) {
+			// Scan errors are kept back, for the parse to report them in the order
+			//  a parse pulling from a Scanner would. Without any, the whole buffer
+			//  can go to the parallel parser.
+			ErrorReporter scanErrors = new ErrorReporter(errors.getMaxErrors(), errors.getLineMap());
+			TokenBuffer tokens = ParallelLexer.tokenize(unit.source, scanErrors, new NameTable());
+
+			if (scanErrors.hasErrors()) {
+				unit.scanner = tokens.cursor(errors);
+			} else {
+				unit.tokens = tokens;
+			}
+		} else {
+			unit.scanner = new Scanner(unit.source, errors);
+		}
+	}
+
+	private static void declare(Unit unit, ErrorReporter errors) {
+		if (!unit.cached) {
+			unit.stream = StreamingCompilation.declare(unit.source, errors.getMaxErrors());
+		}
+	}
+
+	private void compileBodies(Unit unit, ErrorReporter errors) {
+		if (unit.stream == null) {
+			return;
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		// A run that ends before codegen only checks the classes
+		CodeGenerator code = reaches(CODEGEN) ? new CodeGenerator(errors) : null;
+
+		if (unit.stream.compile(code, pool, pool.getParallelism() * 4)) {
+			unit.prog = unit.stream.getProgram();
+			unit.code = code;
+			unit.streamed = true;
+		}
+
+		unit.stream = null;
+	}
+
+	private static void parse(Unit unit, ErrorReporter errors) {
+		if (unit.cached) {
+			return;
+		}
+
+		if (unit.tokens != null) {
+			unit.prog = (Package) ParallelParser.parse(unit.tokens, errors);
+		} else {
+			unit.prog = (Package) new Parser(unit.scanner, errors).parse();
+		}
+	}
+
+	private static boolean isLarge(SourceBuffer source) {
+		return source.length() >= PIPELINE_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	private static void store(ASTCache cache, Unit unit, ErrorReporter errors) {
+		// Only clean trees are kept, since a hit reports no scan or parse errors
+		if (!unit.cached && !unit.streamed && !errors.hasErrors()) {
+			cache.store(unit.hash, unit.prog);
+		}
+	}
+
+	private static void generate(Unit unit, ErrorReporter errors) {
+		unit.code = new CodeGenerator(errors);
+		unit.code.generate(unit.prog);
+	}
+}
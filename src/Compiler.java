@@ -1,23 +1,72 @@
 package miniJava;
 
-import miniJava.AbstractSyntaxTrees.AST;
 import miniJava.AbstractSyntaxTrees.ASTDisplay;
-import miniJava.SyntacticAnalyzer.Parser;
-import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.LineMap;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Compiler {
+	// Directory of the AST cache; none unless set with -DminiJava.cache=<dir>
+	private static final String CACHE_PROPERTY = "miniJava.cache";
+
+	// Main function, the file to compile will be an argument, optionally along with
+	//  --parse-only to stop early, -o <file> to go on to generate code and write it
+	//  to file, --stream to compile class by class, --pipelined to scan on a thread
+	//  of its own while parsing, and --time for the time of each stage. Without -o
+	//  a run ends after type checking, as --check-only does.
+	public static void main(String[] args) throws IOException {
+		String file = null;
+		String last = null;
+		String output = null;
+		boolean time = false;
+		boolean stream = false;
+		boolean pipelined = false;
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+
+			if (arg.equals("-o") && i + 1 < args.length) {
+				output = args[++i];
+			} else if (arg.equals("--parse-only")) {
+				last = CompilationPipeline.PARSE;
+			} else if (arg.equals("--check-only")) {
+				last = CompilationPipeline.TYPECHECK;
+			} else if (arg.equals("--stream")) {
+				stream = true;
+			} else if (arg.equals("--pipelined")) {
+				pipelined = true;
+			} else if (arg.equals("--time")) {
+				time = true;
+			} else {
+				file = arg;
+			}
+		}
 
-	// Main function, the file to compile will be an argument.
-	public static void main(String[] args) throws FileNotFoundException {
 		// Check if directory path is given in args
-		ErrorReporter _errorReporter = new ErrorReporter();
-		FileInputStream _fileInputStream = new FileInputStream(args[0]);
-		Scanner _Scanner = new Scanner(_fileInputStream, _errorReporter);
-		Parser _parser = new Parser(_Scanner, _errorReporter);
-		AST ast = _parser.parse();
+		SourceBuffer _source = SourceBuffer.fromFile(file);
+		ErrorReporter _errorReporter = new ErrorReporter(ErrorReporter.DEFAULT_MAX_ERRORS, new LineMap(_source));
+		String cacheDir = System.getProperty(CACHE_PROPERTY);
+		ASTCache _cache = cacheDir == null ? null : new ASTCache(Paths.get(cacheDir));
+		// Parsing alone gains nothing from streaming, which starts with analysis
+		CompilationPipeline _pipeline = stream && !CompilationPipeline.PARSE.equals(last)
+				? CompilationPipeline.streaming(_cache)
+				: CompilationPipeline.standard(_cache);
+
+		if (last != null) {
+			_pipeline.stopAfter(last);
+		} else if (output == null) {
+			_pipeline.stopAfter(CompilationPipeline.TYPECHECK);
+		} else {
+			_pipeline.output(output);
+		}
+
+		if (pipelined) {
+			_pipeline.pipelineScanning();
+		}
+
+		_pipeline.run(_source, _errorReporter);
 		ASTDisplay astDisplay = new ASTDisplay();
 
 		if (_errorReporter.hasErrors()) {
@@ -28,5 +77,9 @@ public class Compiler {
 			// astDisplay.showTree(ast);
 			System.out.println("Success");
 		}
+
+		if (time) {
+			_pipeline.outputTimes(System.err);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package miniJava.ContextualAnalysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FieldDecl;
+import miniJava.AbstractSyntaxTrees.MemberDecl;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+
+// The members of one class by name, with fields and methods in tables of their
+//  own, so that finding a member takes the same time however many the class has.
+//
+// A class may not declare a field and a method of the same name, which
+//  Identification checks as members are added, so get() finds at most one.
+//  Whether a member is private or static is read from the member itself.
+final class ClassMembers {
+	// The class these are the members of, or null for a table that stands for none
+	final ClassDecl decl;
+	// Whether references are checked against the static members of this class.
+	//  String and _PrintStream are not, so a field of either type cannot be qualified.
+	final boolean checksStatics;
+	private final Map<String, FieldDecl> _fields = new HashMap<String, FieldDecl>();
+	private final Map<String, MethodDecl> _methods = new HashMap<String, MethodDecl>();
+	private int _statics;
+
+	ClassMembers(ClassDecl decl) {
+		this(decl, true);
+	}
+
+	ClassMembers(ClassDecl decl, boolean checksStatics) {
+		this.decl = decl;
+		this.checksStatics = checksStatics;
+	}
+
+	void add(FieldDecl fd) {
+		_fields.put(fd.name, fd);
+		count(fd);
+	}
+
+	void add(MethodDecl md) {
+		_methods.put(md.name, md);
+		count(md);
+	}
+
+	private void count(MemberDecl md) {
+		if (md.isStatic) {
+			_statics++;
+		}
+	}
+
+	boolean hasStatics() {
+		return _statics > 0;
+	}
+
+	// Whether name is a static member of this class
+	boolean isStatic(String name) {
+		MemberDecl md = get(name);
+
+		return md != null && md.isStatic;
+	}
+
+	FieldDecl field(String name) {
+		return _fields.get(name);
+	}
+
+	MethodDecl method(String name) {
+		return _methods.get(name);
+	}
+
+	// The field or method called name, or null
+	MemberDecl get(String name) {
+		FieldDecl fd = _fields.get(name);
+
+		return fd != null ? fd : _methods.get(name);
+	}
+}
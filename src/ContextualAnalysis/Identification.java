@@ -2,8 +2,7 @@ package miniJava.ContextualAnalysis;
 
 import miniJava.ErrorReporter;
 import miniJava.AbstractSyntaxTrees.Package;
-import miniJava.SyntacticAnalyzer.Token;
-import miniJava.SyntacticAnalyzer.TokenType;
+import miniJava.SyntacticAnalyzer.SourcePosition;
 import miniJava.AbstractSyntaxTrees.*;
 
 import java.util.HashMap;
@@ -13,28 +12,55 @@ import java.util.Stack;
 public class Identification implements Visitor<Object,Object> {
 	private ErrorReporter _errors;
 
-	private Map<String, Map<Declaration, Map<String, Declaration>>> IDTable = new HashMap<>();
-	private Map<Declaration, Map<String, Declaration>> memberDeclMap;
-	private Map<String, Declaration> localDeclMap;
-	private Map<Declaration, Map<String, Declaration>> helperMap;
+	private Map<String, ClassMembers> IDTable = new HashMap<>();
+	private ClassMembers memberDeclMap;
+	// Locals and parameters in scope, by name
+	private ScopedTable localDeclMap;
+	private ClassMembers helperMap;
 	private String currClass = "";
 	private MethodDecl currMethod = null;
 	private String currVariable = null;
 
-	private Stack<String> localAssigns;
-	private Map<String, Stack<Declaration>> privateValues = new HashMap<>();
-	private Stack<Declaration> privates;
-	private Map<String, Stack<Declaration>> staticValues = new HashMap<>();
-	private Stack<Declaration> Statics = new Stack<>();
+	// Names used in the method, which must stand for a local or member where they are used
+	private Stack<IdRef> localAssigns;
+	// Whether a private member found in helperMap is out of reach from other
+	//  classes, which is not checked when helperMap was reached through a variable
+	private boolean checksPrivate;
+	// The class whose static members references are checked against, or null
+	private ClassMembers statics;
 	private boolean isMethodStatic = false;
 	private boolean isRefStatic = false;
 	private boolean isLocal = false;
+	// The declaration or expression whose type is being visited, since types
+	//  are shared and have no position of their own
+	private AST typeUse;
+	// Visits children from a worklist, so nesting costs no Java stack; whatever
+	//  a visit does after its children is a step of it, see Traversal
+	private final Traversal<Object,Object> _traversal = new Traversal<Object,Object>(this);
+	// Those of the program being identified, for the types of the predefined classes
+	private Types _types;
 
 	public Identification(ErrorReporter errors) {
 		this._errors = errors;
 	}
 
+	// For a program declared class by class, whose types come from types
+	public Identification(ErrorReporter errors, Types types) {
+		this(errors);
+		this._types = types;
+	}
+
+	// Looks names up in the tables of declarations, which declare() has been
+	//  given every class of the program. The tables are only read, so any number
+	//  of these can identify different classes at the same time.
+	public Identification(ErrorReporter errors, Identification declarations) {
+		this(errors, declarations._types);
+		this.IDTable = declarations.IDTable;
+	}
+
 	public void parse( Package prog ) {
+		_types = prog.types;
+
 		try {
 			visitPackage(prog,null);
 		} catch( IdentificationError e ) {
@@ -42,15 +68,38 @@ public class Identification implements Visitor<Object,Object> {
 		}
 	}
 
+	// Adds the members of one class to the tables, as visitPackage does for every
+	//  class before it identifies any of them
+	public void declare( ClassDecl cd ) {
+		try {
+			if (!IDTable.containsKey("System")) {
+				declarePredefined();
+			}
+
+			declareClass(cd);
+		} catch( IdentificationError e ) {
+			_errors.reportError(e.toString());
+		}
+	}
+
+	// Identifies the names of one class, once every class has been declared
+	public void parse( ClassDecl cd ) {
+		try {
+			identifyClass(cd);
+		} catch( IdentificationError e ) {
+			_errors.reportError(e.toString());
+		}
+	}
+
 	class IdentificationError extends Error {
 		private static final long serialVersionUID = -441346906191470192L;
 		private String _errMsg;
 
 		public IdentificationError(AST ast, String errMsg) {
 			super();
-			this._errMsg = ast.posn == null
+			this._errMsg = ast.posn == SourcePosition.NONE
 					? "*** " + errMsg
-					: "*** " + ast.posn.toString() + ": " + errMsg;
+					: "*** " + _errors.describe(ast.posn) + ": " + errMsg;
 		}
 
 		@Override
@@ -61,106 +110,102 @@ public class Identification implements Visitor<Object,Object> {
 
 	@Override
 	public Object visitPackage(Package prog, Object arg) throws IdentificationError {
-		String pfx = arg + "  . ";
 
-		Declaration _PrintStream = new FieldDecl(false, true,
-				new ClassType(new Identifier(new Token(TokenType.ID, "_PrintStream", null)), null), "out", null,
+		declarePredefined();
+
+		for (ClassDecl c : prog.classDeclList) {
+			declareClass(c);
+		}
+
+		for (ClassDecl c : prog.classDeclList) {
+			identifyClass(c);
+		}
+		return null;
+	}
+
+	// System, its _PrintStream out and String, as classes of their own so that
+	//  references to them are bound like any other
+	private void declarePredefined() {
+		FieldDecl _PrintStream = new FieldDecl(false, true,
+				_types.classType("_PrintStream"), "out", SourcePosition.NONE,
 				"_PrintStream");
-		this.memberDeclMap = new HashMap<>();
+		FieldDeclList systemFields = new FieldDeclList();
+		systemFields.add(_PrintStream);
+		this.memberDeclMap = new ClassMembers(new ClassDecl("System", systemFields, new MethodDeclList(), SourcePosition.NONE));
 		this.IDTable.put("System", this.memberDeclMap);
-		this.memberDeclMap.put(_PrintStream, null);
-		this.privateValues.put("System", new Stack<>());
-		this.staticValues.put("System", new Stack<>());
-		this.staticValues.get("System").add(_PrintStream);
+		this.memberDeclMap.add(_PrintStream);
 
-		this.memberDeclMap = new HashMap<>();
-		this.localDeclMap = new HashMap<>();
-		this.IDTable.put("_PrintStream", this.memberDeclMap);
-		this.localDeclMap.put("n", new VarDecl(new BaseType(TypeKind.INT, null), "n", null));
 		ParameterDeclList temp = new ParameterDeclList();
-		temp.add(new ParameterDecl(new BaseType(TypeKind.INT, null), "n", null));
-		this.memberDeclMap.put(new MethodDecl(new FieldDecl(false, false, new BaseType(TypeKind.VOID, null), "println", null), temp, new StatementList(), null), localDeclMap);
-		this.privateValues.put("_PrintStream", new Stack<>());
+		temp.add(new ParameterDecl(Types.base(TypeKind.INT), "n", SourcePosition.NONE));
+		MethodDecl println = new MethodDecl(new FieldDecl(false, false, Types.base(TypeKind.VOID), "println", SourcePosition.NONE), temp, new StatementList(), SourcePosition.NONE);
+		MethodDeclList printStreamMethods = new MethodDeclList();
+		printStreamMethods.add(println);
+		this.memberDeclMap = new ClassMembers(new ClassDecl("_PrintStream", new FieldDeclList(), printStreamMethods, SourcePosition.NONE), false);
+		this.IDTable.put("_PrintStream", this.memberDeclMap);
+		this.memberDeclMap.add(println);
 
-		this.memberDeclMap = new HashMap<>();
-		this.localDeclMap = new HashMap<>();
+		this.memberDeclMap = new ClassMembers(new ClassDecl("String", new FieldDeclList(), new MethodDeclList(), SourcePosition.NONE), false);
 		this.IDTable.put("String", this.memberDeclMap);
-		this.privateValues.put("String", new Stack<>());
-
-		for (ClassDecl c : prog.classDeclList) {
-			this.memberDeclMap = new HashMap<>();
-			this.privateValues.put(c.name, new Stack<>());
-			this.staticValues.put(c.name, new Stack<>());
-
-			if (IDTable.containsKey(c.name)) {
-				throw new IdentificationError(c, "Duplication Declaration of class " + c.name);
-			}
-			IDTable.put(c.name, this.memberDeclMap);
-
-			for (FieldDecl f : c.fieldDeclList) {
-				if (containsHelper(memberDeclMap, f.name) != null) {
-					throw new IdentificationError(c, "Duplication Declaration of member " + f.name);
-				}
+	}
 
-				if (f.isPrivate) {
-					this.privateValues.get(c.name).add(f);
-				}
+	private void declareClass(ClassDecl c) throws IdentificationError {
+		this.memberDeclMap = new ClassMembers(c);
 
-				if (f.isStatic) {
-					this.staticValues.get(c.name).add(f);
-				}
+		if (IDTable.containsKey(c.name)) {
+			throw new IdentificationError(c, "Duplication Declaration of class " + c.name);
+		}
+		IDTable.put(c.name, this.memberDeclMap);
 
-				memberDeclMap.put(f, null);
+		for (FieldDecl f : c.fieldDeclList) {
+			if (memberDeclMap.get(f.name) != null) {
+				throw new IdentificationError(c, "Duplication Declaration of member " + f.name);
 			}
 
-			for (MethodDecl m : c.methodDeclList) {
-				if (containsHelper(memberDeclMap, m.name) != null) {
-					throw new IdentificationError(c, "Duplication Declaration of member " + m.name);
-				}
-
-				if (m.isPrivate) {
-					this.privateValues.get(c.name).add(m);
-				}
-
-				if (m.isStatic) {
-					this.staticValues.get(c.name).add(m);
-				}
+			memberDeclMap.add(f);
+		}
 
-				memberDeclMap.put(m, null);
+		for (MethodDecl m : c.methodDeclList) {
+			if (memberDeclMap.get(m.name) != null) {
+				throw new IdentificationError(c, "Duplication Declaration of member " + m.name);
 			}
-		}
 
-		for (ClassDecl c : prog.classDeclList) {
-			this.currClass = c.name;
-			this.helperMap = null;
-			this.memberDeclMap = IDTable.get(c.name);
-			c.visit(this, pfx);
+			memberDeclMap.add(m);
 		}
-		return null;
+	}
+
+	private void identifyClass(ClassDecl c) {
+		this.currClass = c.name;
+		this.helperMap = null;
+		this.memberDeclMap = IDTable.get(c.name);
+		_traversal.run(c, null);
 	}
 
 	@Override
 	public Object visitClassDecl(ClassDecl cd, Object arg) {
-		String pfx = arg + "  . ";
 
 		for (FieldDecl f : cd.fieldDeclList) {
-			f.visit(this, pfx);
+			_traversal.visit(f, arg);
 		}
 
 		for (MethodDecl m : cd.methodDeclList) {
-			this.localDeclMap = new HashMap<>();
-			this.localAssigns = new Stack<String>();
-			this.currMethod = m;
-			m.visit(this, pfx);
-
-			while (!this.localAssigns.empty()) {
-				if (!this.localDeclMap.containsKey(this.localAssigns.peek()) && containsHelper(this.IDTable.get(cd.name), this.localAssigns.peek()) == null) {
-					throw new IdentificationError(m, "Local variable " + this.localAssigns.peek() + " cannot be found");
+			_traversal.then(() -> {
+				this.localDeclMap = new ScopedTable();
+				this.localAssigns = new Stack<IdRef>();
+				this.currMethod = m;
+				return null;
+			});
+			_traversal.visit(m, arg);
+
+			// visitIdRef bound each of them to what it stands for at its use
+			_traversal.then(() -> {
+				while (!this.localAssigns.empty()) {
+					if (this.localAssigns.peek().decl == null) {
+						throw new IdentificationError(m, "Local variable " + this.localAssigns.peek().id.spelling + " cannot be found");
+					}
+					this.localAssigns.pop();
 				}
-				this.localAssigns.pop();
-			}
-
-			memberDeclMap.replace(m, localDeclMap);
+				return null;
+			});
 		}
 
 		return null;
@@ -179,17 +224,21 @@ public class Identification implements Visitor<Object,Object> {
 		StatementList sl = md.statementList;
 		this.isMethodStatic = md.isStatic;
 
-		String pfx = ((String) arg) + "  . ";
 
 		ParameterDeclList pdl = md.parameterDeclList;
 
 
 		for (ParameterDecl pd : pdl) {
-			pd.visit(this, pfx);
+			_traversal.visit(pd, arg);
+		}
+
+		// What is left of a body that did not parse would only give more errors
+		if (md.isIncomplete) {
+			return null;
 		}
 
 		for (Statement s : sl) {
-			s.visit(this, pfx);
+			_traversal.visit(s, arg);
 		}
 		return null;
 	}
@@ -200,16 +249,21 @@ public class Identification implements Visitor<Object,Object> {
 			throw new IdentificationError(pd, "Local variable " + pd.name + " declared multiple times");
 		}
 
-		pd.type.visit(this, indent((String) arg));
+		this.typeUse = pd;
+		_traversal.visit(pd.type, arg);
 
-		localDeclMap.put(pd.name, null);
+		_traversal.then(() -> {
+			localDeclMap.put(pd.name, pd);
+			return null;
+		});
 
 		return null;
 	}
 
 	@Override
 	public Object visitVarDecl(VarDecl decl, Object arg) {
-		decl.type.visit(this, indent((String) arg));
+		this.typeUse = decl;
+		_traversal.visit(decl.type, arg);
 		return null;
 	}
 
@@ -220,11 +274,11 @@ public class Identification implements Visitor<Object,Object> {
 
 	@Override
 	public Object visitClassType(ClassType type, Object arg) {
-		if (!type.className.spelling.equals("String") && !IDTable.containsKey(type.className.spelling)) {
-			throw new IdentificationError(type, "Object of type " + type.className.spelling + " cannot be created");
+		if (type.className.spelling != "String" && !IDTable.containsKey(type.className.spelling)) {
+			throw new IdentificationError(typeUse, "Object of type " + type.className.spelling + " cannot be created");
 		}
-		if (type.className.spelling.equals(currVariable)) {
-			throw new IdentificationError(type, currVariable + "cannot be used to declare itself");
+		if (type.className.spelling == currVariable) {
+			throw new IdentificationError(typeUse, currVariable + "cannot be used to declare itself");
 		}
 
 		return null;
@@ -232,22 +286,34 @@ public class Identification implements Visitor<Object,Object> {
 
 	@Override
 	public Object visitArrayType(ArrayType type, Object arg) {
-		type.eltType.visit(this, indent((String) arg));
+		_traversal.visit(type.eltType, arg);
 		return null;
 	}
 
 	@Override
 	public Object visitBlockStmt(BlockStmt stmt, Object arg) {
 		StatementList sl = stmt.sl;
-		String pfx = arg + "  . ";
-		Object temp = null;
+
+		localDeclMap.openScope();
 
 		for (Statement s : sl) {
-			if (s.visit(this, pfx) != null) {
-				temp = true;
-			}
+			_traversal.visit(s, arg);
 		}
-		return temp;
+
+		_traversal.then(() -> {
+			Object temp = null;
+
+			for (int i = 0; i < sl.size(); i++) {
+				if (_traversal.result(i) != null) {
+					temp = true;
+				}
+			}
+
+			localDeclMap.closeScope();
+			return temp;
+		});
+
+		return null;
 	}
 
 	@Override
@@ -260,43 +326,49 @@ public class Identification implements Visitor<Object,Object> {
 
 		localDeclMap.put(name, stmt.varDecl);
 		this.currVariable = name;
-		stmt.initExp.visit(this, indent((String) arg));
-		this.currVariable = null;
+		_traversal.visit(stmt.initExp, arg);
+		_traversal.then(() -> {
+			this.currVariable = null;
+			return true;
+		});
 		return true;
 	}
 
 	@Override
 	public Object visitAssignStmt(AssignStmt stmt, Object arg) {
-		stmt.ref.visit(this, arg + "  ");
-		this.helperMap = null;
+		_traversal.visit(stmt.ref, arg);
+		thenClearHelperMap();
 
-		stmt.val.visit(this, arg + "  ");
+		_traversal.visit(stmt.val, arg);
 		return null;
 	}
 
 	@Override
 	public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
-		stmt.ref.visit(this, indent((String) arg));
-		this.helperMap = null;
+		_traversal.visit(stmt.ref, arg);
+		thenClearHelperMap();
 
-		stmt.ix.visit(this, indent((String) arg));
-		stmt.exp.visit(this, indent((String) arg));
+		_traversal.visit(stmt.ix, arg);
+		_traversal.visit(stmt.exp, arg);
 		return null;
 	}
 
 	@Override
 	public Object visitCallStmt(CallStmt stmt, Object arg) {
-		stmt.methodRef.visit(this, arg);
-		this.helperMap = null;
+		_traversal.visit(stmt.methodRef, arg);
+		_traversal.then(() -> {
+			this.helperMap = null;
 
-		if (stmt.methodRef.toString().equals("ThisRef")) {
-			throw new IdentificationError(stmt, "'this' is not a valid function name");
-		}
+			if (stmt.methodRef.toString().equals("ThisRef")) {
+				throw new IdentificationError(stmt, "'this' is not a valid function name");
+			}
+
+			return null;
+		});
 
 		ExprList al = stmt.argList;
-		String pfx = arg + "  . ";
 		for (Expression e : al) {
-			e.visit(this, pfx);
+			_traversal.visit(e, arg);
 		}
 
 		return null;
@@ -305,7 +377,7 @@ public class Identification implements Visitor<Object,Object> {
 	@Override
 	public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
 		if (stmt.returnExpr != null) {
-			stmt.returnExpr.visit(this, indent((String) arg));
+			_traversal.visit(stmt.returnExpr, arg);
 		}
 
 		return null;
@@ -313,40 +385,57 @@ public class Identification implements Visitor<Object,Object> {
 
 	@Override
 	public Object visitIfStmt(IfStmt stmt, Object arg) {
-		stmt.cond.visit(this, indent((String) arg));
-		if (stmt.elseStmt == null && stmt.thenStmt.visit(this, indent((String) arg)) != null) {
-			throw new IdentificationError(stmt, "Can't Initialize variable in If Statement");
-		}
-
-		if (stmt.elseStmt != null)
-			if (stmt.elseStmt.visit(this, indent((String) arg)) != null) {
-				throw new IdentificationError(stmt, "Can't Initialize variable in Else Statement");
+		_traversal.visit(stmt.cond, arg);
+		// Visited with or without an else, since TypeChecking relies on its bindings
+		_traversal.visit(stmt.thenStmt, arg);
+		_traversal.then(() -> {
+			if (_traversal.result(1) != null && stmt.elseStmt == null) {
+				throw new IdentificationError(stmt, "Can't Initialize variable in If Statement");
 			}
 
+			return null;
+		});
+
+		if (stmt.elseStmt != null) {
+			_traversal.visit(stmt.elseStmt, arg);
+			_traversal.then(() -> {
+				if (_traversal.result(2) != null) {
+					throw new IdentificationError(stmt, "Can't Initialize variable in Else Statement");
+				}
+
+				return null;
+			});
+		}
+
 		return null;
 	}
 
 	@Override
 	public Object visitWhileStmt(WhileStmt stmt, Object arg) {
-		stmt.cond.visit(this, indent((String) arg));
-		if (stmt.body.visit(this, indent((String) arg)) != null) {
-			throw new IdentificationError(stmt, "Can't declare variable in while loops");
-		}
+		_traversal.visit(stmt.cond, arg);
+		_traversal.visit(stmt.body, arg);
+		_traversal.then(() -> {
+			if (_traversal.result(1) != null) {
+				throw new IdentificationError(stmt, "Can't declare variable in while loops");
+			}
+
+			return null;
+		});
 
 		return null;
 	}
 
 	@Override
 	public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
-		expr.expr.visit(this, indent((String) arg));
+		_traversal.visit(expr.expr, arg);
 
 		return null;
 	}
 
 	@Override
 	public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
-		expr.left.visit(this, indent((String) arg));
-		expr.right.visit(this, indent((String) arg));
+		_traversal.visit(expr.left, arg);
+		_traversal.visit(expr.right, arg);
 
 		return null;
 	}
@@ -354,36 +443,44 @@ public class Identification implements Visitor<Object,Object> {
 	@Override
 	public Object visitRefExpr(RefExpr expr, Object arg) {
 		this.isLocal = false;
-		if (expr.ref.visit(this, indent((String) arg)).equals("MethodDecl")) {
-			throw new IdentificationError(expr, "Method cannot be used as a Field");
-		}
-		this.helperMap = null;
+		_traversal.visit(expr.ref, arg);
+		_traversal.then(() -> {
+			if (_traversal.result(0).equals("MethodDecl")) {
+				throw new IdentificationError(expr, "Method cannot be used as a Field");
+			}
+			this.helperMap = null;
+
+			return null;
+		});
 
 		return null;
 	}
 
 	@Override
 	public Object visitIxExpr(IxExpr expr, Object arg) {
-		expr.ref.visit(this, indent((String) arg));
-		this.helperMap = null;
+		_traversal.visit(expr.ref, arg);
+		thenClearHelperMap();
 
-		expr.ixExpr.visit(this, indent((String) arg));
+		_traversal.visit(expr.ixExpr, arg);
 
 		return null;
 	}
 
 	@Override
 	public Object visitCallExpr(CallExpr expr, Object arg) {
-		if (expr.functionRef.visit(this, indent((String) arg)).equals("FieldDecl")) {
-			throw new IdentificationError(expr, "Field Cannot be used as a method");
-		}
+		_traversal.visit(expr.functionRef, arg);
+		_traversal.then(() -> {
+			if (_traversal.result(0).equals("FieldDecl")) {
+				throw new IdentificationError(expr, "Field Cannot be used as a method");
+			}
 
-		this.helperMap = null;
+			this.helperMap = null;
+			return null;
+		});
 
 		ExprList al = expr.argList;
-		String pfx = arg + "  . ";
 		for (Expression e : al) {
-			e.visit(this, pfx);
+			_traversal.visit(e, arg);
 		}
 
 		return null;
@@ -391,21 +488,23 @@ public class Identification implements Visitor<Object,Object> {
 
 	@Override
 	public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
-		expr.lit.visit(this, indent((String) arg));
+		_traversal.visit(expr.lit, arg);
 		return null;
 	}
 
 	@Override
 	public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
-		expr.classtype.visit(this, indent((String) arg));
+		this.typeUse = expr;
+		_traversal.visit(expr.classtype, arg);
 
 		return null;
 	}
 
 	@Override
 	public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
-		expr.eltType.visit(this, indent((String) arg));
-		expr.sizeExpr.visit(this, indent((String) arg));
+		this.typeUse = expr;
+		_traversal.visit(expr.eltType, arg);
+		_traversal.visit(expr.sizeExpr, arg);
 
 		return null;
 	}
@@ -416,21 +515,25 @@ public class Identification implements Visitor<Object,Object> {
 			throw new IdentificationError(ref, "Cannot reference 'this' within a static context");
 		}
 		this.helperMap = IDTable.get(this.currClass);
-		this.privates = privateValues.get(this.currClass);
-		this.Statics = staticValues.get(this.currClass);
+		this.checksPrivate = true;
+		this.statics = staticsOf(this.currClass);
 
 		return this.helperMap;
 	}
 
 	@Override
 	public Object visitIdRef(IdRef ref, Object arg) {
-		if (this.helperMap == null && ref.id.spelling.equals(currVariable)) {
+		if (this.helperMap == null && ref.id.spelling == currVariable) {
 			throw new IdentificationError(ref, currVariable + " cannot be used to declare itself");
 		}
 
-		Declaration temp = containsHelper(memberDeclMap, ref.id.spelling);
+		Declaration temp = memberDeclMap.get(ref.id.spelling);
 		String rVal = "VarDecl";
 
+		// Locals hide members. As the qualifier of a QualRef, visitQRef binds it
+		//  again if it names a class.
+		bind(ref, localDeclMap.containsKey(ref.id.spelling) ? localDeclMap.get(ref.id.spelling) : temp);
+
 		if (temp != null) {
 			try {
 				if (temp.toString().equals("MethodDecl")) {
@@ -443,23 +546,19 @@ public class Identification implements Visitor<Object,Object> {
 			}
 		}
 
-		this.localAssigns.push(ref.id.spelling);
+		this.localAssigns.push(ref);
 
 
-		if (this.Statics == null || this.Statics.size() <= 0) {
-			this.Statics = this.staticValues.get(currClass);
+		if (this.statics == null || !this.statics.hasStatics()) {
+			if (memberDeclMap.isStatic(ref.id.spelling)) {
+				this.isRefStatic = true;
 
-			for (Declaration d: this.Statics) {
-				if (d.name.equals(ref.id.spelling)) {
-					this.isRefStatic = true;
-
-					if (localDeclMap.containsKey(ref.id.spelling)) {
-						this.isLocal = true;
-					}
+				if (localDeclMap.containsKey(ref.id.spelling)) {
+					this.isLocal = true;
 				}
 			}
 
-			this.Statics = new Stack<>();
+			this.statics = null;
 
 			if (!IDTable.containsKey(ref.id.spelling) && !localDeclMap.containsKey(ref.id.spelling)
 					&& !this.isLocal && this.isMethodStatic && this.isMethodStatic != this.isRefStatic) {
@@ -472,23 +571,33 @@ public class Identification implements Visitor<Object,Object> {
 
 	@Override
 	public Object visitQRef(QualRef ref, Object arg) {
-		Object temp = ref.ref.visit(this, indent((String) arg));
+		_traversal.visit(ref.ref, arg);
+		_traversal.then(() -> qualify(ref, _traversal.result(0)));
+
+		return null;
+	}
 
+	// The rest of visitQRef, once ref.ref is identified to what temp says
+	private Object qualify(QualRef ref, Object temp) {
 		String id = "";
 		boolean isClass = false;
 
 		if (this.helperMap == null) {
-			id = this.localAssigns.pop();
+			id = this.localAssigns.pop().id.spelling;
 
-			if (!IDTable.containsKey(id) && containsHelper(this.memberDeclMap, id) == null && !localDeclMap.containsKey(id)) {
+			if (!IDTable.containsKey(id) && this.memberDeclMap.get(id) == null && !localDeclMap.containsKey(id)) {
 				throw new IdentificationError(ref, "Invalid Identifier Found");
 			}
 
 			if (IDTable.containsKey(id)) {
+				if (ref.ref instanceof IdRef) {
+					bind((IdRef) ref.ref, IDTable.get(id).decl);
+				}
+
 				this.helperMap = IDTable.get(id);
-				this.privates = privateValues.get(id);
-				this.Statics = staticValues.get(id);
-				if (!id.equals(currClass)) {
+				this.checksPrivate = true;
+				this.statics = staticsOf(id);
+				if (id != currClass) {
 					isClass = true;
 				}
 			} else {
@@ -496,8 +605,8 @@ public class Identification implements Visitor<Object,Object> {
 					if (localDeclMap.containsKey(id)) {
 						if (((VarDecl) localDeclMap.get(id)).type.typeKind == TypeKind.CLASS) {
 							this.helperMap = IDTable.get(((VarDecl) localDeclMap.get(id)).className);
-							this.privates = new Stack<>();
-							this.Statics = this.staticValues.get(((VarDecl) localDeclMap.get(id)).className);
+							this.checksPrivate = false;
+							this.statics = staticsOf(((VarDecl) localDeclMap.get(id)).className);
 							this.isLocal = true;
 						} else {
 							throw new IdentificationError(
@@ -505,18 +614,18 @@ public class Identification implements Visitor<Object,Object> {
 									+ " cannot be qualified");
 						}
 
-					} else if (containsHelper(this.memberDeclMap, id) != null) {
+					} else if (this.memberDeclMap.get(id) != null) {
 
-						if (((FieldDecl) containsHelper(this.memberDeclMap, id)).type.typeKind == TypeKind.CLASS) {
+						if (((FieldDecl) this.memberDeclMap.get(id)).type.typeKind == TypeKind.CLASS) {
 							this.helperMap = IDTable
-									.get(((FieldDecl) containsHelper(this.memberDeclMap, id)).className);
-							this.privates = new Stack<>();
-							this.Statics = this.staticValues.get(((FieldDecl) containsHelper(this.memberDeclMap, id)).className);
+									.get(((FieldDecl) this.memberDeclMap.get(id)).className);
+							this.checksPrivate = false;
+							this.statics = staticsOf(((FieldDecl) this.memberDeclMap.get(id)).className);
 							this.isRefStatic = false;
-							for (Declaration d : this.Statics) {
-								if (d.name.equals(ref.id.spelling)) {
-									this.isRefStatic = true;
-								}
+							// statics is null for String and unknown classes, whose fields
+							//  end up below with nothing to find in them
+							if (this.statics.isStatic(ref.id.spelling)) {
+								this.isRefStatic = true;
 							}
 
 							if (!isLocal && this.isMethodStatic && this.isMethodStatic != this.isRefStatic) {
@@ -524,65 +633,60 @@ public class Identification implements Visitor<Object,Object> {
 										"Invalid mismatch between static and non static fields");
 							}
 						} else {
-							throw new IdentificationError(ref, ((FieldDecl) containsHelper(this.memberDeclMap, id)).type.typeKind.toString() + " cannot be qualified");
+							throw new IdentificationError(ref, ((FieldDecl) this.memberDeclMap.get(id)).type.typeKind.toString() + " cannot be qualified");
 						}
 					}
 				} catch (Exception e) {
-					this.helperMap = new HashMap<>();
-					this.privates = new Stack<>();
-					this.Statics = new Stack<>();
+					this.helperMap = new ClassMembers(null);
+					this.checksPrivate = false;
+					this.statics = null;
 				}
 			}
 		}
 
-		if (containsHelper(helperMap, ref.id.spelling) == null) {
+		MemberDecl key = helperMap.get(ref.id.spelling);
+
+		ref.decl = key;
+		ref.id.decl = key;
+		ref.classDecl = helperMap.decl;
+
+		if (key == null) {
 			throw new IdentificationError(ref, "Invalid Identifier Found");
-		} else if (temp == null && this.privates.contains(containsHelper(helperMap, ref.id.spelling)) && !currClass.equals(id)) {
+		} else if (temp == null && this.checksPrivate && key.isPrivate && currClass != id) {
 			throw new IdentificationError(ref, "Invalid Identifier Found");
-		} else {
-			for (Declaration key : this.helperMap.keySet()) {
-				if (key.name.equals(ref.id.spelling)) {
-					try {
-						if (privates.contains(key) && IDTable.get(currClass) != this.helperMap) {
-							throw new IdentificationError(ref, "Private value referenced");
-						}
+		}
 
-						if (this.Statics != null && this.Statics.size() > 0) {
+		try {
+			if (this.checksPrivate && key.isPrivate && IDTable.get(currClass) != this.helperMap) {
+				throw new IdentificationError(ref, "Private value referenced");
+			}
 
-							for (Declaration d : this.Statics) {
-								if (d.name.equals(ref.id.spelling)) {
-									this.isRefStatic = true;
-								}
-							}
-						}
+			if (this.statics != null && this.statics.isStatic(ref.id.spelling)) {
+				this.isRefStatic = true;
+			}
 
-						if (!isLocal && !isClass && this.isMethodStatic && this.isMethodStatic != this.isRefStatic) {
-							throw new IdentificationError(ref,
-									"Invalid mismatch between static and non static fields");
-						}
-						if (isClass) {
-							isLocal = true;
-						}
+			if (!isLocal && !isClass && this.isMethodStatic && this.isMethodStatic != this.isRefStatic) {
+				throw new IdentificationError(ref,
+						"Invalid mismatch between static and non static fields");
+			}
+			if (isClass) {
+				isLocal = true;
+			}
 
-						this.helperMap = IDTable.get(((FieldDecl) key).className);
-						privates = this.privateValues.get(((FieldDecl) key).className);
-						this.Statics = this.staticValues.get(((FieldDecl) key).className);
+			this.helperMap = IDTable.get(((FieldDecl) key).className);
+			this.checksPrivate = true;
+			this.statics = staticsOf(((FieldDecl) key).className);
 
-						return key.toString();
-					} catch (Exception e) {
-						this.helperMap = new HashMap<>();
-						return "MethodDecl";
-					}
-				}
-			}
+			return key.toString();
+		} catch (Exception e) {
+			this.helperMap = new ClassMembers(null);
+			return "MethodDecl";
 		}
-
-		return null;
 	}
 
 	@Override
 	public Object visitIdentifier(Identifier id, Object arg) {
-		if (id.spelling.equals(currVariable)) {
+		if (id.spelling == currVariable) {
 			throw new IdentificationError(id, currVariable + " cannot be initialized with itself");
 		}
 		return id.spelling;
@@ -608,17 +712,25 @@ public class Identification implements Visitor<Object,Object> {
 		return null;
 	}
 
-	private String indent(String prefix) {
-		return prefix + "  ";
+	// Once the reference visited so far is identified, it no longer qualifies the
+	//  names after it
+	private void thenClearHelperMap() {
+		_traversal.then(() -> {
+			this.helperMap = null;
+			return null;
+		});
 	}
 
-	private Declaration containsHelper(Map<Declaration, Map<String, Declaration>> temp, String searchKey) {
-		for (Declaration key : temp.keySet()) {
-			if (key.name.equals(searchKey)) {
-				return key;
-			}
-		}
+	private void bind(IdRef ref, Declaration decl) {
+		ref.decl = decl;
+		ref.id.decl = decl;
+	}
 
-		return null;
+	// The members of the class called name if references are checked against its
+	//  static members, or null
+	private ClassMembers staticsOf(String name) {
+		ClassMembers members = IDTable.get(name);
+
+		return members != null && members.checksStatics ? members : null;
 	}
-}
\ No newline at end of file
+}
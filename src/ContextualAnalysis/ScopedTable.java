@@ -0,0 +1,78 @@
+package miniJava.ContextualAnalysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import miniJava.AbstractSyntaxTrees.Declaration;
+
+// The local variables and parameters in scope at one point of a method.
+//
+// Every name maps to the innermost declaration of it that is in scope, and that
+//  declaration to the one it hides, so a lookup costs the same however many
+//  variables the method has. Every put() is also written to an undo log, and
+//  closeScope() takes back exactly the entries made since the matching
+//  openScope(), so a block costs as much as the declarations in it, not as the
+//  names in scope.
+final class ScopedTable {
+	private static final class Entry {
+		final Declaration decl;
+		// What the name stood for before this declaration, or null
+		final Entry hidden;
+
+		Entry(Declaration decl, Entry hidden) {
+			this.decl = decl;
+			this.hidden = hidden;
+		}
+	}
+
+	private final Map<String, Entry> _entries = new HashMap<String, Entry>();
+	// Names in the order they were declared, and where every open scope starts in it
+	private final List<String> _undo = new ArrayList<String>();
+	private int[] _scopes = new int[8];
+	private int _depth;
+
+	boolean containsKey(String name) {
+		return _entries.containsKey(name);
+	}
+
+	// The declaration name stands for here, or null
+	Declaration get(String name) {
+		Entry entry = _entries.get(name);
+
+		return entry == null ? null : entry.decl;
+	}
+
+	// Declares name in the innermost scope, hiding what it stood for until that
+	//  scope is closed
+	void put(String name, Declaration decl) {
+		_entries.put(name, new Entry(decl, _entries.get(name)));
+		_undo.add(name);
+	}
+
+	void openScope() {
+		if (_depth == _scopes.length) {
+			int[] scopes = new int[_depth * 2];
+			System.arraycopy(_scopes, 0, scopes, 0, _depth);
+			_scopes = scopes;
+		}
+
+		_scopes[_depth++] = _undo.size();
+	}
+
+	void closeScope() {
+		int start = _scopes[--_depth];
+
+		for (int i = _undo.size() - 1; i >= start; i--) {
+			String name = _undo.remove(i);
+			Entry hidden = _entries.get(name).hidden;
+
+			if (hidden == null) {
+				_entries.remove(name);
+			} else {
+				_entries.put(name, hidden);
+			}
+		}
+	}
+}
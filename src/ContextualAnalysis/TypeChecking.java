@@ -1,67 +1,59 @@
 package miniJava.ContextualAnalysis;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
-
 import miniJava.ErrorReporter;
 import miniJava.AbstractSyntaxTrees.*;
 import miniJava.AbstractSyntaxTrees.Package;
-import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.SourcePosition;
 import miniJava.SyntacticAnalyzer.TokenType;
 
 public class TypeChecking implements Visitor<Object, TypeDenoter> {
 	private ErrorReporter _errors;
 
-	private Map<String, Stack<Declaration>> _IDTable = new HashMap<>();
-	private Stack<Declaration> _localDeclMap;
-
 	private String _currClass = "";
-	private boolean _qRefFlag = false;
-	private Stack<Declaration> _helper = null;
 	private Declaration _methodCalls = null;
+	// Visits children from a worklist, so nesting costs no Java stack; whatever
+	//  a visit does with the types of its children is a step of it, see Traversal
+	private final Traversal<Object, TypeDenoter> _traversal = new Traversal<Object, TypeDenoter>(this);
+	// Those of the program being checked, so the types made here are its own
+	private Types _types;
 
 	public TypeChecking(ErrorReporter errors) {
 		this._errors = errors;
 	}
 
+	// For a program checked class by class, whose types come from types
+	public TypeChecking(ErrorReporter errors, Types types) {
+		this(errors);
+		this._types = types;
+	}
+
 	public void parse(Package prog) {
-		prog.visit(this, null);
+		_types = prog.types;
+		_traversal.run(prog, null);
+	}
+
+	// Checks one class, once Identification has bound its references. Names are
+	//  never looked up here, so any number of these can check different classes
+	//  at the same time.
+	public void parse(ClassDecl cd) {
+		_currClass = cd.name;
+		_traversal.run(cd, null);
 	}
 
 	private void reportTypeError(AST ast, String errMsg) {
-		_errors.reportError(ast.posn == null
+		_errors.reportError(ast.posn == SourcePosition.NONE
 				? "*** " + errMsg
-				: "*** " + ast.posn.toString() + ": " + errMsg);
+				: "*** " + _errors.describe(ast.posn) + ": " + errMsg);
 	}
 
 	@Override
 	public TypeDenoter visitPackage(Package prog, Object arg) {
-		this._IDTable.put("System", new Stack<>());
-		this._IDTable.get("System").push(new FieldDecl(false, true, new ClassType(new Identifier(new Token(TokenType.ID, "_PrintStream", null)), null), "out", null, "_PrintStream"));
-
-		this._IDTable.put("_PrintStream", new Stack<>());
-		ParameterDeclList temp = new ParameterDeclList();
-		temp.add(new ParameterDecl(new BaseType(TypeKind.INT, null), "n", null));
-		this._IDTable.get("_PrintStream").push(new MethodDecl(new FieldDecl(false, false, new BaseType(TypeKind.VOID, null), "println", null), temp, new StatementList(), null));
-
-		this._IDTable.put("String", new Stack<>());
-
 		for (ClassDecl c : prog.classDeclList) {
-			_IDTable.put(c.name, new Stack<>());
-
-			for (FieldDecl f : c.fieldDeclList) {
-				_IDTable.get(c.name).push(f);
-			}
-
-			for (MethodDecl m : c.methodDeclList) {
-				_IDTable.get(c.name).push(m);
-			}
-		}
-
-		for (ClassDecl c : prog.classDeclList) {
-			_currClass = c.name;
-			c.visit(this, arg);
+			_traversal.then(() -> {
+				_currClass = c.name;
+				return null;
+			});
+			_traversal.visit(c, arg);
 		}
 		return null;
 	}
@@ -69,8 +61,7 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 	@Override
 	public TypeDenoter visitClassDecl(ClassDecl cd, Object arg) {
 		for (MethodDecl m : cd.methodDeclList) {
-			this._localDeclMap = new Stack<>();
-			m.visit(this, arg);
+			_traversal.visit(m, arg);
 		}
 
 		return null;
@@ -84,22 +75,32 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 	@Override
 	public TypeDenoter visitMethodDecl(MethodDecl md, Object arg) {
 		StatementList sl = md.statementList;
-		TypeDenoter temp = null;
 
 		ParameterDeclList pdl = md.parameterDeclList;
 
 		for (ParameterDecl pd : pdl) {
-			pd.visit(this, arg);
+			_traversal.visit(pd, arg);
 		}
 
-		for (Statement s : sl) {
-			temp = s.visit(this, arg);
+		if (md.isIncomplete) {
+			return null;
+		}
 
-			if (temp != null && (md.type.typeKind == TypeKind.VOID && (temp.typeKind != TypeKind.NULL && temp.typeKind != TypeKind.VOID))) {
-				reportTypeError(md, "Wrong return type for method " + md.name);
-			} else if (temp != null && (temp.typeKind != md.type.typeKind && temp.typeKind != TypeKind.NULL)) {
-				reportTypeError(md, "Wrong return type for method " + md.name);
-			}
+		for (int i = 0; i < sl.size(); i++) {
+			int result = pdl.size() + i;
+
+			_traversal.visit(sl.get(i), arg);
+			_traversal.then(() -> {
+				TypeDenoter temp = _traversal.result(result);
+
+				if (temp != null && (md.type.typeKind == TypeKind.VOID && (temp.typeKind != TypeKind.NULL && temp.typeKind != TypeKind.VOID))) {
+					reportTypeError(md, "Wrong return type for method " + md.name);
+				} else if (temp != null && (temp.typeKind != md.type.typeKind && temp.typeKind != TypeKind.NULL)) {
+					reportTypeError(md, "Wrong return type for method " + md.name);
+				}
+
+				return null;
+			});
 		}
 
 		return null;
@@ -107,14 +108,11 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 
 	@Override
 	public TypeDenoter visitParameterDecl(ParameterDecl pd, Object arg) {
-		_localDeclMap.push(pd);
-
 		return pd.type;
 	}
 
 	@Override
 	public TypeDenoter visitVarDecl(VarDecl decl, Object arg) {
-		_localDeclMap.push(decl);
 		return decl.type;
 	}
 
@@ -136,297 +134,264 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 	@Override
 	public TypeDenoter visitBlockStmt(BlockStmt stmt, Object arg) {
 		StatementList sl = stmt.sl;
-		TypeDenoter temp = null;
 
 		for (Statement s : sl) {
-			if (temp == null) {
-				temp = s.visit(this, arg);
-			} else {
-				s.visit(this, arg);
-			}
+			_traversal.visit(s, arg);
 		}
 
-		return temp;
-	}
+		_traversal.then(() -> {
+			TypeDenoter temp = null;
 
-	@Override
-	public TypeDenoter visitVardeclStmt(VarDeclStmt stmt, Object arg) {
-		_localDeclMap.push(stmt.varDecl);
+			for (int i = 0; i < sl.size() && temp == null; i++) {
+				temp = _traversal.result(i);
+			}
 
-		TypeDenoter left = stmt.varDecl.visit(this, arg);
-		TypeDenoter right = stmt.initExp.visit(this, arg);
+			return temp;
+		});
 
-		if (right.typeKind == TypeKind.NULL) {
-			return null;
-		}
+		return null;
+	}
 
-		if (left.typeKind != right.typeKind) {
-			reportTypeError(stmt, stmt.varDecl.name + " has an invalid assignment type");
-			return null;
-		}
+	@Override
+	public TypeDenoter visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+		_traversal.visit(stmt.varDecl, arg);
+		_traversal.visit(stmt.initExp, arg);
+		_traversal.then(() -> {
+			TypeDenoter left = _traversal.result(0);
+			TypeDenoter right = _traversal.result(1);
+
+			if (right.typeKind == TypeKind.NULL) {
+				return null;
+			}
 
-		if (left.typeKind == TypeKind.CLASS && !stmt.varDecl.className.equals(((ClassType) right).className.spelling)) {
-			reportTypeError(stmt, stmt.varDecl.name + " has an invalid assignment");
-		}
+			if (left.typeKind != right.typeKind) {
+				reportTypeError(stmt, stmt.varDecl.name + " has an invalid assignment type");
+				return null;
+			}
 
-		if (left.typeKind == TypeKind.ARRAY) {
-			if (((ArrayType) left).eltType.typeKind != ((ArrayType) right).eltType.typeKind) {
-				reportTypeError(stmt, "Assignment statement has an invalid assignment");
-			} else if (((ArrayType) left).eltType.typeKind == TypeKind.CLASS
-					&& !((((ClassType) ((ArrayType) left).eltType).className.spelling)
-					.equals(((ClassType) ((ArrayType) right).eltType).className.spelling))) {
+			if (left != right && left.typeKind == TypeKind.CLASS) {
+				reportTypeError(stmt, stmt.varDecl.name + " has an invalid assignment");
+			} else if (left != right) {
 				reportTypeError(stmt, "Assignment statement has an invalid assignment");
 			}
-		}
+
+			return null;
+		});
 
 		return null;
 	}
 
 	@Override
 	public TypeDenoter visitAssignStmt(AssignStmt stmt, Object arg) {
-		this._qRefFlag = false;
-		TypeDenoter left = stmt.ref.visit(this, arg);
-		this._helper = null;
-
-		TypeDenoter right = stmt.val.visit(this, arg);
-
-		if (right.typeKind == TypeKind.NULL) {
-			return null;
-		}
-
-		if (left.typeKind != right.typeKind) {
-			reportTypeError(stmt, "Assignment statement has an invalid assignment type");
-			return null;
-		}
+		_traversal.visit(stmt.ref, arg);
+		_traversal.visit(stmt.val, arg);
+		_traversal.then(() -> {
+			TypeDenoter left = _traversal.result(0);
+			TypeDenoter right = _traversal.result(1);
+
+			if (right.typeKind == TypeKind.NULL) {
+				return null;
+			}
 
-		if (left.typeKind == TypeKind.CLASS && !((((ClassType) left).className.spelling).equals(((ClassType) right).className.spelling))) {
-			reportTypeError(stmt, "Assignment statement has an invalid assignment");
-		}
+			if (left.typeKind != right.typeKind) {
+				reportTypeError(stmt, "Assignment statement has an invalid assignment type");
+				return null;
+			}
 
-		if (left.typeKind == TypeKind.ARRAY) {
-			if (((ArrayType) left).eltType.typeKind != ((ArrayType) right).eltType.typeKind) {
-				reportTypeError(stmt, "Assignment statement has an invalid assignment");
-			} else if (((ArrayType) left).eltType.typeKind == TypeKind.CLASS && !((((ClassType) ((ArrayType) left).eltType).className.spelling).equals(((ClassType) ((ArrayType) right).eltType).className.spelling))) {
+			if (left != right) {
 				reportTypeError(stmt, "Assignment statement has an invalid assignment");
 			}
-		}
+
+			return null;
+		});
 
 		return null;
 	}
 
 	@Override
 	public TypeDenoter visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
-		this._qRefFlag = false;
-		TypeDenoter ref = stmt.ref.visit(this, arg);
-		this._helper = null;
-
-		TypeDenoter exp1 = stmt.ix.visit(this, arg);
-		TypeDenoter exp2 = stmt.exp.visit(this, arg);
+		_traversal.visit(stmt.ref, arg);
+		_traversal.visit(stmt.ix, arg);
+		_traversal.visit(stmt.exp, arg);
+		_traversal.then(() -> {
+			TypeDenoter ref = _traversal.result(0);
+			TypeDenoter exp1 = _traversal.result(1);
+			TypeDenoter exp2 = _traversal.result(2);
+
+			if (exp2.typeKind == TypeKind.ARRAY) {
+				exp2 = ((ArrayType) exp2).eltType;
+			}
 
-		if (exp2.typeKind == TypeKind.ARRAY) {
-			exp2 = ((ArrayType) exp2).eltType;
-		}
+			if (ref.typeKind != TypeKind.ARRAY) {
+				reportTypeError(stmt, "Reference is not an Array");
+			}
+			if (exp1.typeKind != TypeKind.INT) {
+				reportTypeError(stmt, "Expression has to be of type Integer");
+			}
+			if (((ArrayType) ref).eltType != exp2) {
+				reportTypeError(stmt, "Array Type does not match Assignment");
+			}
 
-		if (ref.typeKind != TypeKind.ARRAY) {
-			reportTypeError(stmt, "Reference is not an Array");
-		}
-		if (exp1.typeKind != TypeKind.INT) {
-			reportTypeError(stmt, "Expression has to be of type Integer");
-		}
-		if (((ArrayType) ref).eltType.typeKind != exp2.typeKind) {
-			reportTypeError(stmt, "Array Type does not match Assignment");
-		}
-		if (ref.typeKind == TypeKind.CLASS && !(((ClassType) ref).className.spelling.equals(((ClassType) exp2).className.spelling))) {
-			reportTypeError(stmt, "Array Type does not match Assignment");
-		}
+			return null;
+		});
 
 		return null;
 	}
 
 	@Override
 	public TypeDenoter visitCallStmt(CallStmt stmt, Object arg) {
-		this._qRefFlag = false;
-		TypeDenoter temp = stmt.methodRef.visit(this, arg);
-		this._helper = null;
-
-		MethodDecl method = (MethodDecl) this._methodCalls;
-
-		if (method != null) {
-			ParameterDeclList parameters = method.parameterDeclList;
+		_traversal.visit(stmt.methodRef, arg);
+		_traversal.then(() -> {
+			MethodDecl method = (MethodDecl) this._methodCalls;
 
-			if (parameters.size() != stmt.argList.size()) {
-				reportTypeError(method, "Call Expression does not contain Right number of Parameters");
-			} else {
-				for (int i = 0; i < parameters.size(); i++) {
-					TypeDenoter left = parameters.get(i).visit(this, arg);
-					TypeDenoter right = stmt.argList.get(i).visit(this, arg);
-
-					if (left.typeKind != right.typeKind) {
-						reportTypeError(right, "Call Expression does not have matching method");
-					}
-
-					if (left.typeKind == TypeKind.CLASS
-							&& !((ClassType) left).className.spelling.equals(((ClassType) right).className.spelling)) {
-						reportTypeError(right, "Call Expression does not have matching method");
-					}
-
-					if (left.typeKind == TypeKind.ARRAY) {
-						if (((ArrayType) left).eltType.typeKind != ((ArrayType) right).eltType.typeKind) {
-							reportTypeError(right, "Call Expression does not have matching method");
-						} else if (((ArrayType) left).eltType.typeKind == TypeKind.CLASS
-								&& !((((ClassType) ((ArrayType) left).eltType).className.spelling)
-								.equals(((ClassType) ((ArrayType) right).eltType).className.spelling))) {
-							reportTypeError(right, "Call Expression does not have matching method");
-						}
-					}
-				}
+			if (method != null) {
+				checkArguments(method, stmt.argList, arg);
 			}
-		}
 
-		return temp;
+			_traversal.then(() -> _traversal.result(0));
+			return null;
+		});
+
+		return null;
 	}
 
 	@Override
 	public TypeDenoter visitReturnStmt(ReturnStmt stmt, Object arg) {
 		if (stmt.returnExpr != null) {
-			return stmt.returnExpr.visit(this, arg);
+			_traversal.visit(stmt.returnExpr, arg);
+			_traversal.then(() -> _traversal.result(0));
+			return null;
 		}
 
-		return new BaseType(TypeKind.NULL, null);
+		return Types.base(TypeKind.NULL);
 	}
 
 	@Override
 	public TypeDenoter visitIfStmt(IfStmt stmt, Object arg) {
-		TypeDenoter condition = stmt.cond.visit(this, arg);
+		_traversal.visit(stmt.cond, arg);
+		_traversal.then(() -> {
+			if (_traversal.result(0).typeKind != TypeKind.BOOLEAN) {
+				reportTypeError(stmt, "If statement condition is not a boolean");
+			}
 
-		if (condition.typeKind != TypeKind.BOOLEAN) {
-			reportTypeError(stmt, "If statement condition is not a boolean");
-		}
+			return null;
+		});
 
-		return stmt.thenStmt.visit(this, arg);
+		_traversal.visit(stmt.thenStmt, arg);
+		_traversal.then(() -> _traversal.result(1));
+		return null;
 	}
 
 	@Override
 	public TypeDenoter visitWhileStmt(WhileStmt stmt, Object arg) {
-		TypeDenoter condition = stmt.cond.visit(this, arg);
+		_traversal.visit(stmt.cond, arg);
+		_traversal.then(() -> {
+			if (_traversal.result(0).typeKind != TypeKind.BOOLEAN) {
+				reportTypeError(stmt, "While statement condition is not a boolean");
+			}
 
-		if (condition.typeKind != TypeKind.BOOLEAN) {
-			reportTypeError(stmt, "While statement condition is not a boolean");
-		}
+			return null;
+		});
 
-		return stmt.body.visit(this, arg);
+		_traversal.visit(stmt.body, arg);
+		_traversal.then(() -> _traversal.result(1));
+		return null;
 	}
 
 	@Override
 	public TypeDenoter visitUnaryExpr(UnaryExpr expr, Object arg) {
-		TypeDenoter exTypeDenoter = expr.expr.visit(this, arg);
-		this._helper = null;
+		_traversal.visit(expr.expr, arg);
+		_traversal.then(() -> unaryType(expr, _traversal.result(0)));
+		return null;
+	}
 
+	private TypeDenoter unaryType(UnaryExpr expr, TypeDenoter exTypeDenoter) {
 		if (expr.operator.kind == TokenType.MINUS) {
 			if (exTypeDenoter.typeKind != TypeKind.INT) {
-				reportTypeError(exTypeDenoter, "Unary Expression needs a integer expression");
+				reportTypeError(expr.expr, "Unary Expression needs a integer expression");
 			}
-			return new BaseType(TypeKind.INT, null);
+			return Types.base(TypeKind.INT);
 		} else {
 			if (exTypeDenoter.typeKind != TypeKind.BOOLEAN) {
-				reportTypeError(exTypeDenoter, "Unary Expression needs a integer expression");
+				reportTypeError(expr.expr, "Unary Expression needs a integer expression");
 			}
-			return new BaseType(TypeKind.BOOLEAN, null);
+			return Types.base(TypeKind.BOOLEAN);
 		}
 	}
 
 	@Override
 	public TypeDenoter visitBinaryExpr(BinaryExpr expr, Object arg) {
-		TypeDenoter leftTypeDenoter = expr.left.visit(this, arg);
-		TypeDenoter righTypeDenoter = expr.right.visit(this, arg);
+		_traversal.visit(expr.left, arg);
+		_traversal.visit(expr.right, arg);
+		_traversal.then(() -> binaryType(expr, _traversal.result(0), _traversal.result(1)));
+		return null;
+	}
 
+	private TypeDenoter binaryType(BinaryExpr expr, TypeDenoter leftTypeDenoter, TypeDenoter righTypeDenoter) {
 		if (expr.operator.kind == TokenType.BINOP) {
 			if (leftTypeDenoter.typeKind == TypeKind.BOOLEAN && righTypeDenoter.typeKind == TypeKind.BOOLEAN) {
-				return new BaseType(TypeKind.BOOLEAN, null);
+				return Types.base(TypeKind.BOOLEAN);
 			} else {
 				reportTypeError(expr, "Left and Right Expressions have to both be boolean");
-				return new BaseType(TypeKind.UNSUPPORTED, null);
+				return Types.base(TypeKind.UNSUPPORTED);
 			}
 		} else if (expr.operator.kind == TokenType.EQUALEQUAL || expr.operator.kind == TokenType.NEQ) {
 			if(leftTypeDenoter.typeKind == TypeKind.NULL || righTypeDenoter.typeKind == TypeKind.NULL) {
-				return new BaseType(TypeKind.BOOLEAN, null);
+				return Types.base(TypeKind.BOOLEAN);
+			} else if (leftTypeDenoter == righTypeDenoter) {
+				return Types.base(TypeKind.BOOLEAN);
 			} else if (leftTypeDenoter.typeKind == righTypeDenoter.typeKind) {
-				if (leftTypeDenoter.typeKind != TypeKind.CLASS && leftTypeDenoter.typeKind != TypeKind.ARRAY) {
-					return new BaseType(TypeKind.BOOLEAN, null);
-				} else if (leftTypeDenoter.typeKind == TypeKind.CLASS) {
-					if (((ClassType) leftTypeDenoter).className.equals(((ClassType) righTypeDenoter).className)) {
-						return new BaseType(TypeKind.BOOLEAN, null);
-					} else {
-						return new BaseType(TypeKind.UNSUPPORTED, null);
-					}
-				} else {
-					if (((ArrayType) leftTypeDenoter).eltType.typeKind != TypeKind.CLASS) {
-						if (((ArrayType) leftTypeDenoter).eltType.typeKind == ((ArrayType) righTypeDenoter).eltType.typeKind) {
-							return new BaseType(TypeKind.BOOLEAN, null);
-						}
-
-						return new BaseType(TypeKind.UNSUPPORTED, null);
-					} else if (((ArrayType) leftTypeDenoter).eltType.typeKind == TypeKind.CLASS) {
-						if (((ClassType) ((ArrayType) leftTypeDenoter).eltType).className.equals(((ClassType) ((ArrayType) righTypeDenoter).eltType).className)) {
-							return new BaseType(TypeKind.BOOLEAN, null);
-						}
-
-						return new BaseType(TypeKind.UNSUPPORTED, null);
-					} else {
-						return new BaseType(TypeKind.UNSUPPORTED, null);
-					}
-				}
+				return Types.base(TypeKind.UNSUPPORTED);
 			} else {
 				reportTypeError(expr, "Left and Right Expressions have to both be the same when checking equality");
-				return new BaseType(TypeKind.UNSUPPORTED, null);
+				return Types.base(TypeKind.UNSUPPORTED);
 			}
 		} else if (expr.operator.kind == TokenType.GT ||
 					expr.operator.kind == TokenType.GTEQ ||
 					expr.operator.kind == TokenType.LT ||
 					expr.operator.kind == TokenType.LTEQ) {
 			if (leftTypeDenoter.typeKind == TypeKind.INT && righTypeDenoter.typeKind == TypeKind.INT) {
-				return new BaseType(TypeKind.BOOLEAN, null);
+				return Types.base(TypeKind.BOOLEAN);
 			} else {
 				reportTypeError(expr, "Left and Right Expressions have to both be INT");
-				return new BaseType(TypeKind.UNSUPPORTED, null);
+				return Types.base(TypeKind.UNSUPPORTED);
 			}
 		} else if (expr.operator.kind == TokenType.PLUS || expr.operator.kind == TokenType.MINUS) {
 			if (leftTypeDenoter.typeKind == TypeKind.INT && righTypeDenoter.typeKind == TypeKind.INT) {
-				return new BaseType(TypeKind.INT, null);
+				return Types.base(TypeKind.INT);
 			} else {
 				reportTypeError(expr, "Left and Right Expressions have to both be INT");
-				return new BaseType(TypeKind.UNSUPPORTED, null);
+				return Types.base(TypeKind.UNSUPPORTED);
 			}
 		} else {
-			return new BaseType(TypeKind.BOOLEAN, null);
+			return Types.base(TypeKind.BOOLEAN);
 		}
 	}
 
 	@Override
 	public TypeDenoter visitRefExpr(RefExpr expr, Object arg) {
-		this._qRefFlag = false;
-		TypeDenoter temp = expr.ref.visit(this, arg);
-		this._helper = null;
-
-		return temp;
+		_traversal.visit(expr.ref, arg);
+		_traversal.then(() -> _traversal.result(0));
+		return null;
 	}
 
 	@Override
 	public TypeDenoter visitIxExpr(IxExpr expr, Object arg) {
-		this._qRefFlag = false;
-		TypeDenoter exp = expr.ref.visit(this, arg);
-		this._helper = null;
-
-		TypeDenoter num = expr.ixExpr.visit(this, arg);
+		_traversal.visit(expr.ref, arg);
+		_traversal.visit(expr.ixExpr, arg);
+		_traversal.then(() -> indexType(expr, _traversal.result(0), _traversal.result(1)));
+		return null;
+	}
 
+	private TypeDenoter indexType(IxExpr expr, TypeDenoter exp, TypeDenoter num) {
 		if (exp.typeKind != TypeKind.ARRAY) {
-			reportTypeError(num, "IX Expression reference must be an Array");
-			return new BaseType(TypeKind.UNSUPPORTED, null);
+			reportTypeError(expr.ixExpr, "IX Expression reference must be an Array");
+			return Types.base(TypeKind.UNSUPPORTED);
 		}
 
 		if (num.typeKind != TypeKind.INT) {
-			reportTypeError(num, "IX Expressions must have a INT value for size");
-			return new BaseType(TypeKind.UNSUPPORTED, null);
+			reportTypeError(expr.ixExpr, "IX Expressions must have a INT value for size");
+			return Types.base(TypeKind.UNSUPPORTED);
 		}
 
 		return ((ArrayType) exp).eltType;
@@ -434,42 +399,40 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 
 	@Override
 	public TypeDenoter visitCallExpr(CallExpr expr, Object arg) {
-		this._qRefFlag = false;
-		TypeDenoter temp = expr.functionRef.visit(this, arg);
-		this._helper = null;
+		_traversal.visit(expr.functionRef, arg);
+		_traversal.then(() -> {
+			checkArguments((MethodDecl) this._methodCalls, expr.argList, arg);
+			_traversal.then(() -> _traversal.result(0));
+			return null;
+		});
+
+		return null;
+	}
 
-		MethodDecl method = (MethodDecl) this._methodCalls;
+	// Schedules the comparison of each argument with its parameter, in the node
+	//  being visited, whose own results go before theirs
+	private void checkArguments(MethodDecl method, ExprList args, Object arg) {
 		ParameterDeclList parameters = method.parameterDeclList;
 
-		if (parameters.size() != expr.argList.size()) {
+		if (parameters.size() != args.size()) {
 			reportTypeError(method, "Call Expression does not contain Right number of Parameters");
-		} else {
-			for (int i = 0; i < parameters.size(); i++) {
-				TypeDenoter left = parameters.get(i).visit(this, arg);
-				TypeDenoter right = expr.argList.get(i).visit(this, arg);
+			return;
+		}
 
-				if (left.typeKind != right.typeKind) {
-					reportTypeError(right, "Call Expression does not have matching method");
-				}
+		for (int i = 0; i < parameters.size(); i++) {
+			Expression argument = args.get(i);
+			int result = 1 + 2 * i;
 
-				if (left.typeKind == TypeKind.CLASS
-						&& !((ClassType) left).className.spelling.equals(((ClassType) right).className.spelling)) {
-					reportTypeError(right, "Call Expression does not have matching method");
+			_traversal.visit(parameters.get(i), arg);
+			_traversal.visit(argument, arg);
+			_traversal.then(() -> {
+				if (_traversal.result(result) != _traversal.result(result + 1)) {
+					reportTypeError(argument, "Call Expression does not have matching method");
 				}
 
-				if (left.typeKind == TypeKind.ARRAY) {
-					if (((ArrayType) left).eltType.typeKind != ((ArrayType) right).eltType.typeKind) {
-						reportTypeError(right, "Call Expression does not have matching method");
-					} else if (((ArrayType) left).eltType.typeKind == TypeKind.CLASS
-							&& !((((ClassType) ((ArrayType) left).eltType).className.spelling)
-							.equals(((ClassType) ((ArrayType) right).eltType).className.spelling))) {
-						reportTypeError(right, "Call Expression does not have matching method");
-					}
-				}
-			}
+				return null;
+			});
 		}
-
-		return temp;
 	}
 
 	@Override
@@ -484,136 +447,60 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 
 	@Override
 	public TypeDenoter visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+		_traversal.visit(expr.sizeExpr, arg);
+		_traversal.then(() -> newArrayType(expr, _traversal.result(0)));
+		return null;
+	}
+
+	private TypeDenoter newArrayType(NewArrayExpr expr, TypeDenoter sizeExpr) {
 		TypeDenoter type = expr.eltType;
-		TypeDenoter sizeExpr = expr.sizeExpr.visit(this, arg);
 
 		if (sizeExpr.typeKind != TypeKind.INT) {
-			reportTypeError(sizeExpr, "Size Expression in new array Declaration has to be of type Int");
-			return new BaseType(TypeKind.UNSUPPORTED, null);
+			reportTypeError(expr.sizeExpr, "Size Expression in new array Declaration has to be of type Int");
+			return Types.base(TypeKind.UNSUPPORTED);
 		}
 		if (type.typeKind != TypeKind.INT && type.typeKind != TypeKind.CLASS) {
-			reportTypeError(sizeExpr, "Array type must be INT or CLASS");
-			return new BaseType(TypeKind.UNSUPPORTED, null);
+			reportTypeError(expr.sizeExpr, "Array type must be INT or CLASS");
+			return Types.base(TypeKind.UNSUPPORTED);
 		}
 
-		return new ArrayType(type, null);
+		return _types.arrayOf(type);
 	}
 
 	@Override
 	public TypeDenoter visitThisRef(ThisRef ref, Object arg) {
-		this._helper = _IDTable.get(_currClass);
-
-		return new ClassType(new Identifier(new Token(TokenType.ID, _currClass, null)), null);
+		return _types.classType(_currClass);
 	}
 
 	@Override
 	public TypeDenoter visitIdRef(IdRef ref, Object arg) {
-		String id = ref.id.spelling;
-
-		if (this._helper == null) {
-			if (this._qRefFlag && _IDTable.containsKey(id)) {
-				this._helper = _IDTable.get(id);
-				return new ClassType(ref.id, null);
-			} else {
-				for (Declaration d : _localDeclMap) {
-					if (d.name.equals(id)) {
-						if (d.toString().equals("VarDecl")) {
-							this._helper = _IDTable.get(((VarDecl) d).className);
-						} else {
-							this._helper = _IDTable.get(((ParameterDecl) d).className);
-						}
-						if (d.type.typeKind == TypeKind.INT || d.type.typeKind == TypeKind.BOOLEAN) {
-							return new BaseType(d.type.typeKind, null);
-						} else if (d.type.typeKind == TypeKind.CLASS) {
-							return new ClassType(((ClassType) d.type).className, null);
-						} else if (d.type.typeKind == TypeKind.ARRAY) {
-							if (((ArrayType) (d.type)).eltType.typeKind == TypeKind.CLASS) {
-								return new ArrayType(
-										new ClassType(((ClassType) ((ArrayType) d.type).eltType).className, null),
-										null);
-							}
-							return new ArrayType(new BaseType(((ArrayType) (d.type)).eltType.typeKind, null), null);
-						} else {
-							return new BaseType(TypeKind.UNSUPPORTED, null);
-						}
-					}
-				}
-
-				for (Declaration d : _IDTable.get(_currClass)) {
-					if (d.name.equals(id)) {
-						if (d.toString().equals("FieldDecl")) {
-							this._helper = _IDTable.get(((FieldDecl) d).className);
-						} else {
-							this._methodCalls = d;
-							this._helper = new Stack<>();
-						}
-
-						if (d.type.typeKind == TypeKind.INT || d.type.typeKind == TypeKind.BOOLEAN) {
-							return new BaseType(d.type.typeKind, null);
-						} else if (d.type.typeKind == TypeKind.CLASS) {
-							return new ClassType(((ClassType) d.type).className, null);
-						} else if (d.type.typeKind == TypeKind.ARRAY) {
-							if (((ArrayType) (d.type)).eltType.typeKind == TypeKind.CLASS) {
-								return new ArrayType(
-										new ClassType(((ClassType) ((ArrayType) d.type).eltType).className, null),
-										null);
-							}
-							return new ArrayType(new BaseType(((ArrayType) (d.type)).eltType.typeKind, null), null);
-						} else if (d.type.typeKind == TypeKind.VOID) {
-							return d.type;
-						} else {
-							return new BaseType(TypeKind.UNSUPPORTED, null);
-						}
-					}
-				}
-			}
-
-			reportTypeError(ref, "Variable Not Found");
-			return new BaseType(TypeKind.UNSUPPORTED, null);
-		}
-
-		for (Declaration d : this._helper) {
-			if (d.name.equals(id)) {
-				if (d.toString().equals("FieldDecl")) {
-					this._helper = _IDTable.get(((FieldDecl) d).className);
-				} else {
-					this._methodCalls = d;
-					this._helper = new Stack<>();
-				}
+		Declaration d = ref.decl;
 
-				if (d.type.typeKind == TypeKind.INT || d.type.typeKind == TypeKind.BOOLEAN) {
-					return new BaseType(d.type.typeKind, null);
-				} else if (d.type.typeKind == TypeKind.CLASS) {
-					return new ClassType(((ClassType) d.type).className, null);
-				} else if (d.type.typeKind == TypeKind.CLASS) {
-					if (((ArrayType) (d.type)).eltType.typeKind == TypeKind.CLASS) {
-						return new ArrayType(
-								new ClassType(((ClassType) ((ArrayType) d.type).eltType).className, null),
-								null);
-					}
-					return new ArrayType(new BaseType(((ArrayType) (d.type)).eltType.typeKind, null), null);
-				} else if (d.type.typeKind == TypeKind.VOID) {
-					return d.type;
-				} else {
-					return new BaseType(TypeKind.UNSUPPORTED, null);
-				}
-			}
+		if (d instanceof ClassDecl) {
+			return _types.classType(d.name);
+		} else if (d instanceof VarDecl || d instanceof ParameterDecl) {
+			return localType(d);
+		} else if (d != null) {
+			return memberType(d);
 		}
 
 		reportTypeError(ref, "Variable Not Found");
-		return new BaseType(TypeKind.UNSUPPORTED, null);
+		return Types.base(TypeKind.UNSUPPORTED);
 	}
 
 	@Override
 	public TypeDenoter visitQRef(QualRef ref, Object arg) {
-		this._qRefFlag = true;
+		_traversal.visit(ref.ref, arg);
+		_traversal.then(() -> qualifiedType(ref, _traversal.result(0)));
+		return null;
+	}
 
-		TypeDenoter refDenoter = ref.ref.visit(this, arg);
-		TypeDenoter idDenoter = ref.id.visit(this, arg);
+	private TypeDenoter qualifiedType(QualRef ref, TypeDenoter refDenoter) {
+		TypeDenoter idDenoter = ref.decl == null ? Types.base(TypeKind.UNSUPPORTED) : memberType(ref.decl);
 
 		if (refDenoter.typeKind != TypeKind.CLASS) {
-			reportTypeError(refDenoter, "Reference must be a class type");
-			return new BaseType(TypeKind.UNSUPPORTED, null);
+			reportTypeError(ref.ref, "Reference must be a class type");
+			return Types.base(TypeKind.UNSUPPORTED);
 		}
 
 		return idDenoter;
@@ -621,61 +508,33 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 
 	@Override
 	public TypeDenoter visitIdentifier(Identifier id, Object arg) {
-		if (this._helper == null) {
-			if (this._qRefFlag && _IDTable.containsKey(id.spelling)) {
-				this._helper = _IDTable.get(id.spelling);
-				return new ClassType(id, null);
-			} else {
-				for (Declaration d : _localDeclMap) {
-					if (d.name.equals(id.spelling)) {
-						this._helper = this._IDTable.get(((VarDecl) d).className);
-						return d.type;
-					}
-				}
+		return null;
+	}
 
-				for (Declaration d : _IDTable.get(_currClass)) {
-					if (d.name.equals(id.spelling)) {
-						if (d.toString().equals("FieldDecl")) {
-							this._helper = this._IDTable.get(((FieldDecl) d).className);
-						} else {
-							this._methodCalls = d;
-							this._helper = new Stack<>();
-						}
-						return d.type;
-					}
-				}
-			}
+	// The type of a reference to a local variable or parameter
+	private TypeDenoter localType(Declaration d) {
+		if (d.type.typeKind == TypeKind.INT || d.type.typeKind == TypeKind.BOOLEAN
+				|| d.type.typeKind == TypeKind.CLASS || d.type.typeKind == TypeKind.ARRAY) {
+			return d.type;
 		} else {
-			for (Declaration d : this._helper) {
-				if (d.name.equals(id.spelling)) {
-					if (d.toString().equals("FieldDecl")) {
-						this._helper = _IDTable.get(((FieldDecl) d).className);
-					} else {
-						this._methodCalls = d;
-						this._helper = new Stack<>();
-					}
-
-					if (d.type.typeKind == TypeKind.INT || d.type.typeKind == TypeKind.BOOLEAN) {
-						return new BaseType(d.type.typeKind, null);
-					} else if (d.type.typeKind == TypeKind.CLASS) {
-						return new ClassType(((ClassType) d.type).className, null);
-					} else if (d.type.typeKind == TypeKind.ARRAY) {
-						if (((ArrayType) (d.type)).eltType.typeKind == TypeKind.CLASS) {
-							return new ArrayType(
-									new ClassType(((ClassType) ((ArrayType) d.type).eltType).className, null),
-									null);
-						}
-						return new ArrayType(new BaseType(((ArrayType) (d.type)).eltType.typeKind, null), null);
-					} else if (d.type.typeKind == TypeKind.VOID) {
-						return d.type;
-					} else {
-						return new BaseType(TypeKind.UNSUPPORTED, null);
-					}
-				}
-			}
+			return Types.base(TypeKind.UNSUPPORTED);
+		}
+	}
+
+	// The type of a reference to a member. A method also becomes the one the
+	//  call around the reference calls.
+	private TypeDenoter memberType(Declaration d) {
+		if (d instanceof MethodDecl) {
+			this._methodCalls = d;
 		}
 
-		return new BaseType(TypeKind.UNSUPPORTED, null);
+		if (d.type.typeKind == TypeKind.INT || d.type.typeKind == TypeKind.BOOLEAN
+				|| d.type.typeKind == TypeKind.CLASS || d.type.typeKind == TypeKind.ARRAY
+				|| d.type.typeKind == TypeKind.VOID) {
+			return d.type;
+		} else {
+			return Types.base(TypeKind.UNSUPPORTED);
+		}
 	}
 
 	@Override
@@ -685,16 +544,16 @@ public class TypeChecking implements Visitor<Object, TypeDenoter> {
 
 	@Override
 	public TypeDenoter visitIntLiteral(IntLiteral num, Object arg) {
-		return new BaseType(TypeKind.INT, null);
+		return Types.base(TypeKind.INT);
 	}
 
 	@Override
 	public TypeDenoter visitBooleanLiteral(BooleanLiteral bool, Object arg) {
-		return new BaseType(TypeKind.BOOLEAN, null);
+		return Types.base(TypeKind.BOOLEAN);
 	}
 
 	@Override
 	public TypeDenoter visitNullLiteral(NullLiteral bool, Object arg) {
-		return new BaseType(TypeKind.NULL, null);
+		return Types.base(TypeKind.NULL);
 	}
 }
\ No newline at end of file
@@ -3,29 +3,106 @@ package miniJava;
 import java.util.List;
 import java.util.ArrayList;
 
+import miniJava.SyntacticAnalyzer.HalfPosition;
+import miniJava.SyntacticAnalyzer.LineMap;
+import miniJava.SyntacticAnalyzer.SourcePosition;
+
 // TODO: Note this class lacks a lot of things.
 //  First of all, errors are simple strings,
 //  perhaps it may be worthwhile to augment this reporter
 //  with requiring line numbers.
 public class ErrorReporter {
+	public static final int DEFAULT_MAX_ERRORS = 100;
+
 	private List<String> _errorQueue;
+	private int _maxErrors;
+	private int _dropped;
+	// Lines of the source the messages are about, or null if it is not known
+	private LineMap _lines;
 
 	public ErrorReporter() {
+		this(DEFAULT_MAX_ERRORS);
+	}
+
+	// Keeps at most maxErrors messages; anything reported after that is only counted
+	public ErrorReporter(int maxErrors) {
+		this(maxErrors, null);
+	}
+
+	// As above, with positions in messages given as lines and columns of lines
+	public ErrorReporter(int maxErrors, LineMap lines) {
 		this._errorQueue = new ArrayList<String>();
+		this._maxErrors = maxErrors;
+		this._lines = lines;
 	}
 
 	public boolean hasErrors() {
 		// TODO: Check if errorQueue is non-empty
 		return !_errorQueue.isEmpty();
 	}
+	// Once full, there is no point in looking for more errors
+	public boolean isFull() {
+		return _errorQueue.size() >= _maxErrors;
+	}
+
+	public int getMaxErrors() {
+		return _maxErrors;
+	}
+
+	public LineMap getLineMap() {
+		return _lines;
+	}
+
+	// Where posn starts, as it should be written in a message
+	public String describe(long posn) {
+		if (_lines == null) {
+			return SourcePosition.toString(posn);
+		}
+
+		HalfPosition start = _lines.start(posn);
+
+		return "Line: " + start.getLineNum() + ", Column: " + start.getColumn();
+	}
+
+	public int getErrorCount() {
+		return _errorQueue.size();
+	}
+
+	// Everything reported so far, the errors only counted for lack of room included
+	public int getReportedCount() {
+		return _errorQueue.size() + _dropped;
+	}
+
+	public String getError(int i) {
+		return _errorQueue.get(i);
+	}
+
 	public void outputErrors() {
 		// TODO: output all errors in the errorQueue
 		for (String e : _errorQueue) {
 			System.out.println("Errors in errorQueue: " + e);
 		}
+
+		if (_dropped > 0) {
+			System.out.println("Errors in errorQueue: ... and " + _dropped + " more");
+		}
+	}
+
+	// Reports everything other has collected, as if it had been reported here
+	public void reportAll(ErrorReporter other) {
+		for (String e : other._errorQueue) {
+			reportError(e);
+		}
+
+		_dropped += other._dropped;
 	}
 
 	public void reportError(String ...error) {
+		if (isFull()) {
+			_dropped++;
+			return;
+		}
+
 		StringBuilder sb = new StringBuilder();
 
 		for(String s : error)
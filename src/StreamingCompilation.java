@@ -0,0 +1,120 @@
+package miniJava;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.ClassDeclList;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.AbstractSyntaxTrees.Types;
+import miniJava.CodeGeneration.CodeGenerator;
+import miniJava.ContextualAnalysis.Identification;
+import miniJava.ContextualAnalysis.TypeChecking;
+import miniJava.SyntacticAnalyzer.SourceBuffer;
+import miniJava.SyntacticAnalyzer.StreamingParser;
+
+// Compiles a program one class at a time, for the streaming mode of
+//  CompilationPipeline.
+//
+// StreamingParser first parses the head of every class, and each one is declared
+//  to Identification as soon as it is complete. Once all of them are known, the
+//  bodies of the classes are scanned, parsed and analyzed on a pool, a window of
+//  classes ahead of the calling thread, which generates the code of every class
+//  in source order and then drops its bodies again. The bodies are scanned from
+//  the source, not kept as tokens, so besides the source itself and the
+//  declarations of all classes only the tokens and bodies of the classes in
+//  flight are ever in memory at once.
+//
+// Everything up to code generation reports into reporters of its own, and an
+//  error of any kind ends the attempt, so the caller can compile the program the
+//  ordinary way and report what that reports. Code generation itself reports
+//  nothing before the ELF file is written.
+final class StreamingCompilation {
+	private final StreamingParser _parser;
+	private final Identification _identification;
+	private final Types _types = new Types();
+	private final int _maxErrors;
+	private Package _prog;
+
+	private StreamingCompilation(SourceBuffer source, ErrorReporter errors) {
+		this._parser = new StreamingParser(source, _types);
+		this._identification = new Identification(errors, _types);
+		this._maxErrors = errors.getMaxErrors();
+	}
+
+	// Parses and declares the heads of all classes, or returns null after any error
+	static StreamingCompilation declare(SourceBuffer source, int maxErrors) {
+		ErrorReporter errors = new ErrorReporter(maxErrors);
+		StreamingCompilation compilation = new StreamingCompilation(source, errors);
+
+		compilation._prog = compilation._parser.parseHeads(errors, compilation._identification::declare);
+
+		return compilation._prog == null || errors.hasErrors() ? null : compilation;
+	}
+
+	// The classes with their members, but none of the bodies
+	Package getProgram() {
+		return _prog;
+	}
+
+	// Parses and analyzes the bodies of every class on pool, and generates their
+	//  code into code unless it is null. Returns false as soon as any class fails.
+	boolean compile(CodeGenerator code, ForkJoinPool pool, int window) {
+		ClassDeclList classes = _prog.classDeclList;
+		ArrayDeque<Future<Boolean>> inFlight = new ArrayDeque<Future<Boolean>>();
+		int next = 0;
+
+		if (code != null) {
+			code.start();
+		}
+
+		try {
+			for (int c = 0; c < classes.size(); c++) {
+				while (next < classes.size() && next - c < window) {
+					ClassDecl decl = classes.get(next++);
+
+					inFlight.add(pool.submit(() -> analyze(decl)));
+				}
+
+				if (!inFlight.remove().get()) {
+					for (Future<Boolean> f : inFlight) {
+						f.cancel(false);
+					}
+
+					return false;
+				}
+
+				if (code != null) {
+					code.generate(classes.get(c));
+				}
+
+				_parser.releaseBodies(classes.get(c));
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while compiling", e);
+		} catch( ExecutionException e ) {
+			throw new IllegalStateException("Compiling failed", e.getCause());
+		}
+
+		return true;
+	}
+
+	private boolean analyze(ClassDecl decl) {
+		ErrorReporter errors = new ErrorReporter(_maxErrors);
+
+		if (!_parser.parseBodies(decl, errors)) {
+			return false;
+		}
+
+		new Identification(errors, _identification).parse(decl);
+
+		if (!errors.hasErrors()) {
+			new TypeChecking(errors, _types).parse(decl);
+		}
+
+		return !errors.hasErrors();
+	}
+}
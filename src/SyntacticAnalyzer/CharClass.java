@@ -0,0 +1,44 @@
+package miniJava.SyntacticAnalyzer;
+
+// Character classes for the 7-bit ASCII range, one table entry per character.
+//  Anything outside the table (non-ASCII, or the end-of-text marker) has no class.
+final class CharClass {
+	static final int WHITESPACE = 1;
+	static final int DELIMITER = 1 << 1;
+	static final int DIGIT = 1 << 2;
+	static final int LETTER = 1 << 3;
+	static final int OPERATOR_START = 1 << 4;
+
+	private static final byte[] TABLE = new byte[128];
+
+	static {
+		for (char c : " \t\n\r".toCharArray()) {
+			TABLE[c] = WHITESPACE | DELIMITER;
+		}
+
+		// Every character that starts a token in Scanner.checkTokenType
+		for (char c : "+-*/<>=!(){}[];,.&|".toCharArray()) {
+			TABLE[c] = OPERATOR_START;
+		}
+
+		// Characters that end an identifier or keyword. '&' and '|' are not among them.
+		for (char c : "+-*/<>=!(){}[];,.".toCharArray()) {
+			TABLE[c] |= DELIMITER;
+		}
+
+		for (char c = '0'; c <= '9'; c++) {
+			TABLE[c] = DIGIT;
+		}
+
+		for (char c = 'a'; c <= 'z'; c++) {
+			TABLE[c] = LETTER;
+			TABLE[c - 'a' + 'A'] = LETTER;
+		}
+	}
+
+	private CharClass() {}
+
+	static int of(char c) {
+		return c < 128 ? TABLE[c] : 0;
+	}
+}
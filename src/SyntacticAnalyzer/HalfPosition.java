@@ -1,19 +1,26 @@
 package miniJava.SyntacticAnalyzer;
 
+// One end of a source span, decoded to a line and a column by a LineMap.
+//  Both are 1-based.
 public class HalfPosition {
     public int _lineNum;
-    public int _lineWidth;
+    public int _column;
 
-    public HalfPosition(int lineNum, int lineWidth){
+    public HalfPosition(int lineNum, int column){
         this._lineNum = lineNum;
-        this._lineWidth = lineWidth;
+        this._column = column;
     }
 
     public int getLineNum(){
         return _lineNum;
     }
 
-    public int getLineWidth(){
-        return _lineWidth;
+    public int getColumn(){
+        return _column;
+    }
+
+    @Override
+    public String toString() {
+        return _lineNum + ":" + _column;
     }
 }
@@ -0,0 +1,116 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.ErrorReporter;
+
+// Brings a TokenBuffer up to date after a text edit by rescanning only the part
+//  of the source the edit can have affected.
+//
+// The scanner carries no state across a token boundary: what it produces from
+//  the end of one token on depends only on the text from there on, and it never
+//  looks more than one character past a token. So the rescan restarts at the end
+//  of the last token that finishes strictly before the edit (which can never be
+//  inside a comment), and stops as soon as it produces a token that starts past
+//  the inserted text exactly where an old token started. From there on the old
+//  tokens are reused, moved by the size of the edit. Opening or closing a
+//  multi-line comment simply keeps the rescan going until the streams meet again,
+//  at the latest at EOT.
+//
+// Scan errors are only reported for the rescanned region.
+public final class IncrementalLexer {
+	private final ErrorReporter _errors;
+
+	public IncrementalLexer(ErrorReporter errors) {
+		this._errors = errors;
+	}
+
+	// Replaces removed bytes at offset in the source of previous with inserted
+	public Change relex(TokenBuffer previous, int offset, int removed, String inserted) {
+		SourceBuffer source = previous.source().edit(offset, removed, inserted);
+		TokenBuffer tokens = new TokenBuffer(source, previous.names());
+		int editEnd = offset + inserted.length();
+		int offsetDelta = inserted.length() - removed;
+
+		int first = firstAffected(previous, offset);
+		int restart = first == 0 ? 0 : previous.start(first - 1) + previous.length(first - 1);
+
+		tokens.addShifted(previous, 0, first, 0);
+
+		Scanner scanner = new Scanner(source, _errors, previous.names(), restart);
+		int oldIndex;
+
+		while (true) {
+			TokenType kind = scanner.nextToken();
+			int start = scanner.tokenStart();
+			int length = scanner.tokenLength();
+
+			oldIndex = start >= editEnd ? previous.indexAt(start - offsetDelta) : -1;
+
+			if (oldIndex >= 0) {
+				tokens.addShifted(previous, oldIndex, previous.size(), offsetDelta);
+				break;
+			}
+
+			// Tokens entirely before the edit that came out the same are not a change
+			if (first == tokens.size() && first < previous.size() && start + length <= offset
+					&& previous.start(first) == start && previous.length(first) == length && previous.kind(first) == kind) {
+				first++;
+			}
+
+			tokens.add(kind, start, length, scanner.tokenValue());
+		}
+
+		return new Change(tokens, first, oldIndex, tokens.size() - (previous.size() - oldIndex));
+	}
+
+	// First token that the edit touches, or that ends right where it begins.
+	//  Token ends increase along the buffer, and EOT is always affected.
+	private static int firstAffected(TokenBuffer tokens, int offset) {
+		int low = 0;
+		int high = tokens.size() - 1;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (tokens.start(mid) + tokens.length(mid) < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	// The result of one edit: tokens [first, newEnd) of the new buffer replace
+	//  tokens [first, oldEnd) of the previous one. Everything before first is
+	//  unchanged; everything from newEnd on is the old tail, moved.
+	public static final class Change {
+		private final TokenBuffer _tokens;
+		private final int _first;
+		private final int _oldEnd;
+		private final int _newEnd;
+
+		Change(TokenBuffer tokens, int first, int oldEnd, int newEnd) {
+			this._tokens = tokens;
+			this._first = first;
+			this._oldEnd = oldEnd;
+			this._newEnd = newEnd;
+		}
+
+		public TokenBuffer getTokens() {
+			return _tokens;
+		}
+
+		public int getFirst() {
+			return _first;
+		}
+
+		public int getOldEnd() {
+			return _oldEnd;
+		}
+
+		public int getNewEnd() {
+			return _newEnd;
+		}
+	}
+}
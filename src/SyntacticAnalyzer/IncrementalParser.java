@@ -0,0 +1,512 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+
+// Brings the tree of a program up to date after IncrementalLexer has relexed an
+//  edit, by parsing again only the declarations the edit touched.
+//
+// Every class runs from its "class" token up to the next class, and every member
+//  from its first token up to the next member or the brace closing its class.
+//  Both starts are exact in the positions of the previous tree, so the token
+//  range of each declaration is known without looking at the tokens in between.
+//  Parsing a member only depends on its own tokens and the name of its class, so
+//  a member whose tokens all come before the change is kept as it is, and one
+//  whose tokens all come after it is kept and moved. Only the members in between
+//  are parsed again, and spliced in between the ones that were kept. An edit that
+//  touches the head or the closing brace of a class, or that spans classes, parses
+//  the classes in between again instead.
+//
+// The previous tree is expected to be the result of a parse that reported no
+//  errors: the diagnostics of a declaration that is kept are not repeated. It is
+//  consumed: what is kept of it is moved into the result, not copied. If the new
+//  tokens give any parse error, the whole program is parsed again so that the
+//  errors are the ones a full parse reports, recovery included. Contextual
+//  analysis needs the whole program, so it is left to run on all of the result.
+public final class IncrementalParser {
+	private final ErrorReporter _errors;
+
+	// Positions in diagnostics are described against the source after the edit,
+	//  so the LineMap of errors, if any, should be one of that source
+	public IncrementalParser(ErrorReporter errors) {
+		this._errors = errors;
+	}
+
+	// Parses change.getTokens(), where previous was parsed from before
+	public AST reparse(Package previous, TokenBuffer before, IncrementalLexer.Change change) {
+		Package prog = previous == null ? null : splice(previous, before, change);
+
+		if (prog == null) {
+			return new Parser(change.getTokens().cursor(), _errors).parse();
+		}
+
+		return prog;
+	}
+
+	private Package splice(Package previous, TokenBuffer before, IncrementalLexer.Change change) {
+		TokenBuffer after = change.getTokens();
+		Tokens old = new Tokens(before, change);
+		Classes classes = new Classes(previous.classDeclList, before);
+		int count = previous.classDeclList.size();
+
+		if (count == 0) {
+			return null;
+		}
+
+		// Classes before lo end before the change, classes from hi on start after it
+		int lo = 0;
+		int hi = count;
+
+		for (int high = count; lo < high;) {
+			int mid = (lo + high) >>> 1;
+
+			if (classes.start(mid + 1) <= old.first) {
+				lo = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		for (int low = lo; low < hi;) {
+			int mid = (low + hi) >>> 1;
+
+			if (classes.start(mid) < old.end) {
+				low = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+
+		int gapStart = classes.start(lo);
+		int gapEnd = classes.start(hi);
+
+		if (classes.mismatch) {
+			return null;
+		}
+
+		ClassDeclList classList = new ClassDeclList();
+
+		for (int c = 0; c < lo; c++) {
+			classList.add(previous.classDeclList.get(c));
+		}
+
+		// One class, with the change strictly inside its braces
+		ClassDecl changed = hi - lo == 1 && gapStart + 3 <= old.first && old.end <= gapEnd - 1
+				? spliceMembers(previous.classDeclList.get(lo), previous.types, gapStart, gapEnd, before, old, after)
+				: null;
+
+		if (changed != null) {
+			classList.add(changed);
+		} else {
+			ErrorReporter errors = new ErrorReporter(_errors.getMaxErrors());
+			Parser parser = new Parser(after.cursor(gapStart, old.moved(gapEnd), after.names()), errors, previous.types);
+			ClassDeclList parsed = parser.parseClasses();
+
+			if (parsed == null || errors.hasErrors()) {
+				return null;
+			}
+
+			for (ClassDecl cd : parsed) {
+				classList.add(cd);
+			}
+		}
+
+		Shift shift = new Shift(old);
+
+		for (int c = hi; c < count; c++) {
+			ClassDecl cd = previous.classDeclList.get(c);
+			shift.shift(cd);
+			classList.add(cd);
+		}
+
+		if (classList.size() == 0) {
+			return null;
+		}
+
+		long end = after.token(after.size() - 2).getTokenPosition();
+
+		return new Package(classList, SourcePosition.span(after.token(0).getTokenPosition(), end), previous.types);
+	}
+
+	// The members of one class around the change are kept, the ones it touches
+	//  are parsed again; null if those do not parse
+	private ClassDecl spliceMembers(ClassDecl cd, Types types, int classStart, int classEnd,
+			TokenBuffer before, Tokens old, TokenBuffer after) {
+		List<MemberDecl> members = new ArrayList<MemberDecl>();
+		int f = 0;
+		int m = 0;
+
+		// Fields and methods interleave in the source; merge them back by offset
+		while (f < cd.fieldDeclList.size() || m < cd.methodDeclList.size()) {
+			boolean field = m == cd.methodDeclList.size() || f < cd.fieldDeclList.size()
+					&& cd.fieldDeclList.get(f).posn < cd.methodDeclList.get(m).posn;
+
+			members.add(field ? cd.fieldDeclList.get(f++) : cd.methodDeclList.get(m++));
+		}
+
+		int[] starts = new int[members.size() + 1];
+
+		for (int i = 0; i < members.size(); i++) {
+			starts[i] = before.indexAt(SourcePosition.offset(members.get(i).posn));
+
+			if (starts[i] < 0) {
+				return null;
+			}
+		}
+
+		// The closing brace of the class ends the last member
+		starts[members.size()] = classEnd - 1;
+
+		int lo = 0;
+		int hi = members.size();
+
+		while (lo < members.size() && starts[lo + 1] <= old.first) {
+			lo++;
+		}
+
+		while (hi > lo && starts[hi - 1] >= old.end) {
+			hi--;
+		}
+
+		// Past "class", its name and "{" when no member comes before the change
+		int gapStart = lo == 0 ? classStart + 3 : starts[lo];
+		int gapEnd = starts[hi];
+
+		ClassDecl parsed = new ClassDecl(cd.name, new FieldDeclList(), new MethodDeclList(), SourcePosition.NONE);
+		ErrorReporter errors = new ErrorReporter(_errors.getMaxErrors());
+		Parser parser = new Parser(after.cursor(gapStart, old.moved(gapEnd), after.names()), errors, types);
+
+		if (!parser.parseMembers(parsed) || errors.hasErrors()) {
+			return null;
+		}
+
+		long end = after.token(old.moved(classEnd - 1)).getTokenPosition();
+		ClassDecl result = new ClassDecl(cd.name, new FieldDeclList(), new MethodDeclList(),
+				SourcePosition.span(cd.posn, end));
+		Shift shift = new Shift(old);
+
+		for (int i = 0; i < lo; i++) {
+			add(result, members.get(i));
+		}
+
+		for (FieldDecl fd : parsed.fieldDeclList) {
+			result.fieldDeclList.add(fd);
+		}
+
+		for (MethodDecl md : parsed.methodDeclList) {
+			result.methodDeclList.add(md);
+		}
+
+		for (int i = hi; i < members.size(); i++) {
+			shift.shift(members.get(i));
+			add(result, members.get(i));
+		}
+
+		return result;
+	}
+
+	private static void add(ClassDecl cd, MemberDecl member) {
+		if (member instanceof MethodDecl) {
+			cd.methodDeclList.add((MethodDecl) member);
+		} else {
+			cd.fieldDeclList.add((FieldDecl) member);
+		}
+	}
+
+	// The token ranges of the previous classes, looked up only as needed
+	private static final class Classes {
+		private final ClassDeclList _classes;
+		private final TokenBuffer _before;
+		private final int[] _starts;
+		// Set once the tree turns out not to match the tokens
+		boolean mismatch;
+
+		Classes(ClassDeclList classes, TokenBuffer before) {
+			this._classes = classes;
+			this._before = before;
+			this._starts = new int[classes.size() + 1];
+			Arrays.fill(_starts, -1);
+			_starts[classes.size()] = before.size() - 1;
+		}
+
+		// Index of the first token of class c, or of EOT past the last class
+		int start(int c) {
+			if (_starts[c] == -1) {
+				_starts[c] = _before.indexAt(SourcePosition.offset(_classes.get(c).posn));
+				mismatch |= _starts[c] == -1;
+			}
+
+			return _starts[c];
+		}
+	}
+
+	// Where the change is in the previous tokens, and how far it moved the rest
+	private static final class Tokens {
+		final int first;
+		final int end;
+		final int indexDelta;
+		final int offsetDelta;
+
+		Tokens(TokenBuffer before, IncrementalLexer.Change change) {
+			TokenBuffer after = change.getTokens();
+
+			this.first = change.getFirst();
+			this.end = change.getOldEnd();
+			this.indexDelta = change.getNewEnd() - end;
+			this.offsetDelta = after.start(change.getNewEnd()) - before.start(end);
+		}
+
+		// Index in the new tokens of a previous token at or after the change
+		int moved(int index) {
+			return index + indexDelta;
+		}
+	}
+
+	// Moves the position of every node in a kept subtree past the change
+	private static final class Shift implements Visitor<Object, Object> {
+		private final int _offsetDelta;
+		private final Traversal<Object, Object> _traversal = new Traversal<Object, Object>(this);
+
+		Shift(Tokens old) {
+			this._offsetDelta = old.offsetDelta;
+		}
+
+		void shift(AST ast) {
+			_traversal.run(ast, null);
+		}
+
+		private void move(AST ast) {
+			ast.posn = SourcePosition.move(ast.posn, _offsetDelta);
+		}
+
+		public Object visitPackage(Package prog, Object arg) {
+			move(prog);
+			for (ClassDecl cd : prog.classDeclList) {
+				_traversal.visit(cd, arg);
+			}
+			return null;
+		}
+
+		public Object visitClassDecl(ClassDecl cd, Object arg) {
+			move(cd);
+			for (FieldDecl fd : cd.fieldDeclList) {
+				_traversal.visit(fd, arg);
+			}
+			for (MethodDecl md : cd.methodDeclList) {
+				_traversal.visit(md, arg);
+			}
+			return null;
+		}
+
+		public Object visitFieldDecl(FieldDecl fd, Object arg) {
+			move(fd);
+			_traversal.visit(fd.type, arg);
+			return null;
+		}
+
+		public Object visitMethodDecl(MethodDecl md, Object arg) {
+			move(md);
+			_traversal.visit(md.type, arg);
+			for (ParameterDecl pd : md.parameterDeclList) {
+				_traversal.visit(pd, arg);
+			}
+			for (Statement s : md.statementList) {
+				_traversal.visit(s, arg);
+			}
+			return null;
+		}
+
+		public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+			move(pd);
+			_traversal.visit(pd.type, arg);
+			return null;
+		}
+
+		public Object visitVarDecl(VarDecl decl, Object arg) {
+			move(decl);
+			_traversal.visit(decl.type, arg);
+			return null;
+		}
+
+		// Types are shared by all of their uses and have no position, see Types
+		public Object visitBaseType(BaseType type, Object arg) {
+			return null;
+		}
+
+		public Object visitClassType(ClassType type, Object arg) {
+			return null;
+		}
+
+		public Object visitArrayType(ArrayType type, Object arg) {
+			return null;
+		}
+
+		public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+			move(stmt);
+			for (Statement s : stmt.sl) {
+				_traversal.visit(s, arg);
+			}
+			return null;
+		}
+
+		public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+			move(stmt);
+			_traversal.visit(stmt.varDecl, arg);
+			_traversal.visit(stmt.initExp, arg);
+			return null;
+		}
+
+		public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+			move(stmt);
+			_traversal.visit(stmt.ref, arg);
+			_traversal.visit(stmt.val, arg);
+			return null;
+		}
+
+		public Object visitIxAssignStmt(IxAssignStmt stmt, Object arg) {
+			move(stmt);
+			_traversal.visit(stmt.ref, arg);
+			_traversal.visit(stmt.ix, arg);
+			_traversal.visit(stmt.exp, arg);
+			return null;
+		}
+
+		public Object visitCallStmt(CallStmt stmt, Object arg) {
+			move(stmt);
+			_traversal.visit(stmt.methodRef, arg);
+			for (Expression e : stmt.argList) {
+				_traversal.visit(e, arg);
+			}
+			return null;
+		}
+
+		public Object visitReturnStmt(ReturnStmt stmt, Object arg) {
+			move(stmt);
+			if (stmt.returnExpr != null) {
+				_traversal.visit(stmt.returnExpr, arg);
+			}
+			return null;
+		}
+
+		public Object visitIfStmt(IfStmt stmt, Object arg) {
+			move(stmt);
+			_traversal.visit(stmt.cond, arg);
+			_traversal.visit(stmt.thenStmt, arg);
+			if (stmt.elseStmt != null) {
+				_traversal.visit(stmt.elseStmt, arg);
+			}
+			return null;
+		}
+
+		public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+			move(stmt);
+			_traversal.visit(stmt.cond, arg);
+			_traversal.visit(stmt.body, arg);
+			return null;
+		}
+
+		public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.operator, arg);
+			_traversal.visit(expr.expr, arg);
+			return null;
+		}
+
+		public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.operator, arg);
+			_traversal.visit(expr.left, arg);
+			_traversal.visit(expr.right, arg);
+			return null;
+		}
+
+		public Object visitRefExpr(RefExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.ref, arg);
+			return null;
+		}
+
+		public Object visitIxExpr(IxExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.ref, arg);
+			_traversal.visit(expr.ixExpr, arg);
+			return null;
+		}
+
+		public Object visitCallExpr(CallExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.functionRef, arg);
+			for (Expression e : expr.argList) {
+				_traversal.visit(e, arg);
+			}
+			return null;
+		}
+
+		public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.lit, arg);
+			return null;
+		}
+
+		public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.classtype, arg);
+			return null;
+		}
+
+		public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+			move(expr);
+			_traversal.visit(expr.eltType, arg);
+			_traversal.visit(expr.sizeExpr, arg);
+			return null;
+		}
+
+		public Object visitThisRef(ThisRef ref, Object arg) {
+			move(ref);
+			return null;
+		}
+
+		public Object visitIdRef(IdRef ref, Object arg) {
+			move(ref);
+			_traversal.visit(ref.id, arg);
+			return null;
+		}
+
+		public Object visitQRef(QualRef ref, Object arg) {
+			move(ref);
+			_traversal.visit(ref.id, arg);
+			_traversal.visit(ref.ref, arg);
+			return null;
+		}
+
+		public Object visitIdentifier(Identifier id, Object arg) {
+			move(id);
+			return null;
+		}
+
+		public Object visitOperator(Operator op, Object arg) {
+			move(op);
+			return null;
+		}
+
+		public Object visitIntLiteral(IntLiteral num, Object arg) {
+			move(num);
+			return null;
+		}
+
+		public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+			move(bool);
+			return null;
+		}
+
+		public Object visitNullLiteral(NullLiteral nul, Object arg) {
+			move(nul);
+			return null;
+		}
+	}
+}
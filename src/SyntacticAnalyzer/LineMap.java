@@ -0,0 +1,62 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Side table for turning packed SourcePositions into line and column numbers.
+//  It is built on first use with one pass over the source, so compilations that
+//  report no diagnostics never pay for it. Once built it is only read, so
+//  diagnostics from any number of threads can share one map.
+public final class LineMap {
+	private final SourceBuffer _source;
+	// Offset of the first byte of every line; set once, by whichever thread gets there first
+	private volatile int[] _lineStarts;
+
+	public LineMap(SourceBuffer source) {
+		this._source = source;
+	}
+
+	public HalfPosition start(long posn) {
+		return resolve(SourcePosition.offset(posn));
+	}
+
+	public HalfPosition end(long posn) {
+		return resolve(SourcePosition.end(posn));
+	}
+
+	public HalfPosition resolve(int offset) {
+		int[] lineStarts = _lineStarts;
+
+		if (lineStarts == null) {
+			lineStarts = build();
+		}
+
+		int i = Arrays.binarySearch(lineStarts, offset);
+		int line = i >= 0 ? i : -i - 2;
+
+		return new HalfPosition(line + 1, offset - lineStarts[line] + 1);
+	}
+
+	// Threads that race here build the same table, and any of them may be kept
+	private int[] build() {
+		ByteBuffer buf = _source.bytes();
+		int length = _source.length();
+		int[] lineStarts = new int[Math.max(16, length / 32)];
+		int lines = 1;
+
+		for (int i = 0; i < length; i++) {
+			if (buf.get(i) == '\n') {
+				if (lines == lineStarts.length) {
+					lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+				}
+
+				lineStarts[lines++] = i + 1;
+			}
+		}
+
+		lineStarts = Arrays.copyOf(lineStarts, lines);
+		_lineStarts = lineStarts;
+
+		return lineStarts;
+	}
+}
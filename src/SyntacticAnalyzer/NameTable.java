@@ -0,0 +1,104 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.nio.ByteBuffer;
+
+// Canonical spellings for identifiers. Every occurrence of the same name, across
+//  all tokens of a compilation, maps to one String object, so later phases can
+//  compare names with == instead of equals().
+//
+// The canonical object is the JVM-interned String, which means names that the
+//  compiler itself writes as literals ("System", "String", ...) are identical to
+//  the ones read from source. The table in front of intern() is keyed on the raw
+//  source bytes, so a repeated name costs a hash probe and no allocation.
+public final class NameTable {
+	private String[] _names;
+	private int[] _hashes;
+	private int _size;
+
+	public NameTable() {
+		this._names = new String[1024];
+		this._hashes = new int[1024];
+	}
+
+	public String intern(String name) {
+		return name.intern();
+	}
+
+	public String intern(SourceBuffer source, int start, int length) {
+		ByteBuffer buf = source.bytes();
+		int hash = hash(buf, start, length);
+		int mask = _names.length - 1;
+
+		for (int i = hash & mask; ; i = (i + 1) & mask) {
+			String name = _names[i];
+
+			if (name == null) {
+				name = source.slice(start, length).intern();
+				_names[i] = name;
+				_hashes[i] = hash;
+
+				if (++_size * 2 > _names.length) {
+					grow();
+				}
+
+				return name;
+			}
+
+			if (_hashes[i] == hash && matches(name, buf, start, length)) {
+				return name;
+			}
+		}
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	private static int hash(ByteBuffer buf, int start, int length) {
+		int h = 0;
+
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + buf.get(start + i);
+		}
+
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean matches(String name, ByteBuffer buf, int start, int length) {
+		if (name.length() != length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (name.charAt(i) != (buf.get(start + i) & 0xFF)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void grow() {
+		String[] names = _names;
+		int[] hashes = _hashes;
+		int mask = names.length * 2 - 1;
+
+		_names = new String[names.length * 2];
+		_hashes = new int[names.length * 2];
+
+		for (int j = 0; j < names.length; j++) {
+			if (names[j] == null) {
+				continue;
+			}
+
+			int i = hashes[j] & mask;
+
+			while (_names[i] != null) {
+				i = (i + 1) & mask;
+			}
+
+			_names[i] = names[j];
+			_hashes[i] = hashes[j];
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import miniJava.ErrorReporter;
+
+// Tokenizes one large source by scanning pieces of it at the same time.
+//
+// A quick pre-pass walks the bytes once, tracking only whether it is in code,
+//  a // comment or a /* */ comment, and picks split points at whitespace in code.
+//  No token contains whitespace and the scanner keeps no state across it, so each
+//  piece scans exactly as it would have in one pass. A piece is scanned up to
+//  and including the whitespace character that ends it, so the last token of the
+//  piece sees the same lookahead it would in a full scan. No comment may come
+//  between that token and the split point, so that the scan errors the pieces
+//  hold with their tokens are the ones a full scan holds (see addPiece()).
+//
+// The pieces are stitched back in order, and the scan errors of each piece are
+//  reported in order after all pieces are done. The result is the same TokenBuffer
+//  and the same diagnostics as Scanner.tokenize(). The one exception is a source
+//  broken badly enough to fill the ErrorReporter: where a single scanner would
+//  have stopped depends on all pieces before it, so that source is simply scanned
+//  again in one pass.
+public final class ParallelLexer {
+	// Pieces smaller than this are not worth a task of their own
+	private static final int MIN_CHUNK = 1 << 20;
+
+	private static final int CODE = 0;
+	private static final int LINE_COMMENT = 1;
+	private static final int BLOCK_COMMENT = 2;
+
+	private ParallelLexer() {}
+
+	public static TokenBuffer tokenize(SourceBuffer source, ErrorReporter errors, NameTable names) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int chunks = Math.min(pool.getParallelism() * 4, source.length() / MIN_CHUNK);
+
+		return tokenize(source, errors, names, pool, chunks);
+	}
+
+	public static TokenBuffer tokenize(SourceBuffer source, ErrorReporter errors, NameTable names,
+			ForkJoinPool pool, int chunks) {
+		if (chunks < 2) {
+			return new Scanner(source, errors, names).tokenize();
+		}
+
+		List<Integer> splits = split(source, chunks);
+		List<Callable<Chunk>> tasks = new ArrayList<Callable<Chunk>>();
+		int room = errors.getMaxErrors() - errors.getErrorCount();
+
+		for (int i = 0; i < splits.size(); i++) {
+			int start = splits.get(i);
+			// Up to and including the whitespace the next piece starts on
+			int limit = i + 1 < splits.size() ? splits.get(i + 1) + 1 : source.length();
+
+			tasks.add(() -> new Chunk(source, start, limit, room, errors.getLineMap()));
+		}
+
+		List<Chunk> results = new ArrayList<Chunk>();
+
+		try {
+			for (Future<Chunk> f : pool.invokeAll(tasks)) {
+				results.add(f.get());
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while scanning", e);
+		} catch( ExecutionException e ) {
+			throw new IllegalStateException("Scanning failed", e.getCause());
+		}
+
+		int count = 0;
+		int reported = 0;
+
+		for (Chunk chunk : results) {
+			count += chunk.tokens.size() - 1;
+			reported += chunk.errors.getErrorCount();
+		}
+
+		if (reported >= room) {
+			return new Scanner(source, errors, names).tokenize();
+		}
+
+		TokenBuffer tokens = new TokenBuffer(source, names, count + 1);
+
+		for (int i = 0; i < results.size(); i++) {
+			Chunk chunk = results.get(i);
+
+			tokens.addPiece(chunk.tokens, i + 1 == results.size());
+
+			for (int e = 0; e < chunk.errors.getErrorCount(); e++) {
+				errors.reportError(chunk.errors.getError(e));
+			}
+		}
+
+		return tokens;
+	}
+
+	// Start offset of each piece; the first always starts at 0
+	private static List<Integer> split(SourceBuffer source, int chunks) {
+		ByteBuffer buf = source.bytes();
+		int length = source.length();
+		int target = length / chunks;
+		int next = target;
+		int state = CODE;
+		int previous = 0;
+		// A comment came after the last token
+		boolean commented = false;
+		List<Integer> splits = new ArrayList<Integer>();
+
+		splits.add(0);
+
+		for (int i = 0; i < length; i++) {
+			int c = buf.get(i);
+
+			if (state == LINE_COMMENT && (c == '\n' || c == '\r')) {
+				state = CODE;
+			}
+
+			if (state == CODE) {
+				if (c == '/' && i + 1 < length) {
+					int after = buf.get(i + 1);
+
+					if (after == '/' || after == '*') {
+						// The scanner only starts matching "*/" after the "/*"
+						state = after == '/' ? LINE_COMMENT : BLOCK_COMMENT;
+						previous = 0;
+						commented = true;
+						i++;
+						continue;
+					}
+				}
+
+				if ((CharClass.of((char) c) & CharClass.WHITESPACE) == 0) {
+					commented = false;
+				} else if (i >= next && !commented) {
+					splits.add(i);
+					next = i + target;
+				}
+			} else if (state == BLOCK_COMMENT) {
+				if (c == '/' && previous == '*') {
+					state = CODE;
+				}
+
+				previous = c;
+			}
+		}
+
+		return splits;
+	}
+
+	private static final class Chunk {
+		final ErrorReporter errors;
+		final TokenBuffer tokens;
+
+		Chunk(SourceBuffer source, int start, int limit, int maxErrors, LineMap lines) {
+			this.errors = new ErrorReporter(maxErrors, lines);
+			// Names are canonical JVM-wide, so a table per piece still gives shared strings
+			this.tokens = new Scanner(source, errors, new NameTable(), start, limit).tokenize();
+		}
+	}
+}
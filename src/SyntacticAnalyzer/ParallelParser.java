@@ -0,0 +1,153 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.ClassDeclList;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.AbstractSyntaxTrees.Types;
+
+// Parses the classes of one program at the same time.
+//
+// A program is nothing but a list of ClassDeclarations, and each of them starts
+//  with "class" and ends at the brace that closes its body. So one walk over the
+//  token kinds, counting braces, finds where every class begins and ends. Each
+//  range is parsed by a Parser of its own, through a cursor that ends the range
+//  with an EOT, and the classes are put back together in source order.
+//
+// Anything else falls back to one sequential parse, so the diagnostics stay the
+//  same: tokens outside of any class, unbalanced braces, a range that does not
+//  parse as one whole class, or any parse error at all.
+public final class ParallelParser {
+	private ParallelParser() {}
+
+	public static AST parse(TokenBuffer tokens, ErrorReporter errors) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		return parse(tokens, errors, pool, pool.getParallelism() * 4);
+	}
+
+	public static AST parse(TokenBuffer tokens, ErrorReporter errors, ForkJoinPool pool, int chunks) {
+		int[] bounds = classBounds(tokens);
+
+		if (bounds == null || bounds.length < 3 || chunks < 2) {
+			return new Parser(tokens.cursor(), errors).parse();
+		}
+
+		int classes = bounds.length - 1;
+		int groups = Math.min(chunks, classes);
+		List<Callable<Group>> tasks = new ArrayList<Callable<Group>>();
+		Types types = new Types();
+
+		for (int g = 0; g < groups; g++) {
+			int first = (int) ((long) classes * g / groups);
+			int last = (int) ((long) classes * (g + 1) / groups);
+
+			tasks.add(() -> new Group(tokens, bounds, first, last, errors, types));
+		}
+
+		List<Group> results = new ArrayList<Group>();
+
+		try {
+			for (Future<Group> f : pool.invokeAll(tasks)) {
+				results.add(f.get());
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while parsing", e);
+		} catch( ExecutionException e ) {
+			throw new IllegalStateException("Parsing failed", e.getCause());
+		}
+
+		ClassDeclList classList = new ClassDeclList();
+
+		for (Group group : results) {
+			// Recovering near the end of a range could see its EOT, not the next class
+			if (group.decls == null || group.errors.hasErrors()) {
+				return new Parser(tokens.cursor(), errors).parse();
+			}
+
+			for (ClassDecl decl : group.decls) {
+				classList.add(decl);
+			}
+		}
+
+		long start = tokens.token(0).getTokenPosition();
+		long end = tokens.token(bounds[classes] - 1).getTokenPosition();
+		return new Package(classList, SourcePosition.span(start, end), types);
+	}
+
+	// Index of the first token of every class, followed by the index of the EOT,
+	//  or null if the tokens are not a plain sequence of brace-balanced classes
+	private static int[] classBounds(TokenBuffer tokens) {
+		int count = tokens.size() - 1;
+		int[] bounds = new int[64];
+		int classes = 0;
+		int depth = 0;
+
+		for (int i = 0; i < count; i++) {
+			TokenType kind = tokens.kind(i);
+
+			if (depth == 0 && (i == 0 || tokens.kind(i - 1) == TokenType.RBRACE)) {
+				if (kind != TokenType.CLASS) {
+					return null;
+				}
+
+				if (classes + 1 >= bounds.length) {
+					int[] grown = new int[bounds.length * 2];
+					System.arraycopy(bounds, 0, grown, 0, classes);
+					bounds = grown;
+				}
+
+				bounds[classes++] = i;
+			}
+
+			if (kind == TokenType.LBRACE) {
+				depth++;
+			} else if (kind == TokenType.RBRACE && --depth < 0) {
+				return null;
+			}
+		}
+
+		if (depth != 0 || (count > 0 && tokens.kind(count - 1) != TokenType.RBRACE)) {
+			return null;
+		}
+
+		int[] result = new int[classes + 1];
+		System.arraycopy(bounds, 0, result, 0, classes);
+		result[classes] = count;
+
+		return result;
+	}
+
+	// Classes [first, last), parsed one after the other on one thread
+	private static final class Group {
+		final ErrorReporter errors;
+		final ClassDecl[] decls;
+
+		Group(TokenBuffer tokens, int[] bounds, int first, int last, ErrorReporter parent, Types types) {
+			this.errors = new ErrorReporter(parent.getMaxErrors(), parent.getLineMap());
+			// Names are canonical JVM-wide, so a table per group still gives shared strings
+			NameTable names = new NameTable();
+			ClassDecl[] decls = new ClassDecl[last - first];
+
+			for (int c = first; c < last && decls != null; c++) {
+				Parser parser = new Parser(tokens.cursor(bounds[c], bounds[c + 1], names), errors, types);
+				decls[c - first] = parser.parseClass();
+
+				if (decls[c - first] == null) {
+					decls = null;
+				}
+			}
+
+			this.decls = decls;
+		}
+	}
+}
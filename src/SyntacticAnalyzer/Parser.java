@@ -1,232 +1,449 @@
 package miniJava.SyntacticAnalyzer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import miniJava.ErrorReporter;
 import miniJava.AbstractSyntaxTrees.*;
 import miniJava.AbstractSyntaxTrees.Package;
-import miniJava.ContextualAnalysis.Identification;
-import miniJava.ContextualAnalysis.TypeChecking;
 
 
 public class Parser {
-	private Scanner _scanner;
+	private TokenSource _scanner;
 	private ErrorReporter _errors;
 	private Token _currentToken;
+	private long _lastPosition = SourcePosition.NONE;
+	// Set when a statement of the current method had to be skipped
+	private boolean _skipped;
+	// Only set for a parse of class heads: method bodies are skipped, and the
+	//  source range of each is added here, in the order of the methods
+	private List<int[]> _bodies;
+	private final Types _types;
+
+	public Parser( TokenSource scanner, ErrorReporter errors ) {
+		this(scanner, errors, new Types());
+	}
 
-	public Parser( Scanner scanner, ErrorReporter errors ) {
+	// Parses part of a program, whose types come from types
+	Parser( TokenSource scanner, ErrorReporter errors, Types types ) {
 		this._scanner = scanner;
 		this._errors = errors;
+		this._types = types;
 		this._currentToken = this._scanner.scan();
 	}
 
+	// Parses class heads only, adding the range of every method body to bodies
+	Parser( TokenSource scanner, ErrorReporter errors, Types types, List<int[]> bodies ) {
+		this(scanner, errors, types);
+		this._bodies = bodies;
+	}
+
 	class SyntaxError extends Error {
 		private static final long serialVersionUID = -6461942006097999362L;
 	}
 
+	private enum StatementKind { BLOCK, IF, WHILE }
+
+	// A { braced } block, or an if or while still waiting for a body
+	private static final class OpenStatement {
+		final StatementKind kind;
+		final long start;
+		final StatementList statements;
+		final Expression cond;
+		Statement thenStmt;
+
+		OpenStatement(StatementKind kind, StatementList statements, long start) {
+			this.kind = kind;
+			this.start = start;
+			this.statements = statements;
+			this.cond = null;
+		}
+
+		OpenStatement(StatementKind kind, Expression cond, long start) {
+			this.kind = kind;
+			this.start = start;
+			this.statements = null;
+			this.cond = cond;
+		}
+	}
+
+	private enum ExpressionKind { BINARY, UNARY, PAREN, NEW_ARRAY, INDEX, CALL }
+
+	// An expression still waiting for an operand: the right one of a binary
+	//  operator, the one of a unary operator, or what goes in parentheses,
+	//  brackets or an argument list
+	private static final class OpenExpression {
+		final ExpressionKind kind;
+		final long start;
+		int minPrecedence;
+		Expression left;
+		Token operator;
+		TypeDenoter type;
+		Reference reference;
+		ExprList arguments;
+
+		OpenExpression(ExpressionKind kind, long start) {
+			this.kind = kind;
+			this.start = start;
+		}
+	}
+
+	// Syntax errors are reported and recovered from, so this always reads up to
+	//  EOT and returns a tree: declarations that did not parse are left out of it,
+	//  and methods with statements that did not parse are marked incomplete.
+	//  Contextual analysis is up to the caller, see CompilationPipeline.
 	public AST parse() {
+		// The first thing we need to parse is the Program
+		return parseProgram();
+	}
+
+	// Parses a source holding nothing but ClassDeclarations, or returns null if
+	//  that is not what it holds
+	ClassDeclList parseClasses() {
+		try {
+			ClassDeclList classList = new ClassDeclList();
+
+			while (_currentToken.getTokenType() != TokenType.EOT) {
+				classList.add(parseClassDeclaration());
+			}
+
+			return classList;
+		} catch( SyntaxError e ) {
+			return null;
+		}
+	}
+
+	// Parses a source holding nothing but members of Class into Class, or returns
+	//  false if that is not what it holds
+	boolean parseMembers(ClassDecl Class) {
 		try {
-			// The first thing we need to parse is the Program
-			Package prog = parseProgram();
+			while (_currentToken.getTokenType() != TokenType.EOT) {
+				parseMemberDeclaration(Class);
+			}
+
+			return true;
+		} catch( SyntaxError e ) {
+			return false;
+		}
+	}
 
-			Identification identification = new Identification(_errors);
-			identification.parse(prog);
+	// Parses a source holding exactly one ClassDeclaration, or returns null if
+	//  that is not what it holds
+	ClassDecl parseClass() {
+		try {
+			ClassDecl decl = parseClassDeclaration();
 
-			TypeChecking typeChecking = new TypeChecking(_errors);
-			typeChecking.parse(prog);
+			return _currentToken.getTokenType() == TokenType.EOT ? decl : null;
+		} catch( SyntaxError e ) {
+			return null;
+		}
+	}
 
-			return prog;
-		} catch( SyntaxError e ) {}
-		return null;
+	// The next ClassDeclaration, or null at EOT or if it does not parse
+	ClassDecl parseNextClass() {
+		try {
+			return _currentToken.getTokenType() == TokenType.EOT ? null : parseClassDeclaration();
+		} catch( SyntaxError e ) {
+			return null;
+		}
+	}
+
+	// Parses the statements and closing } of a body that a parse of class heads
+	//  skipped into method, or returns false if that is not what the tokens hold
+	boolean parseBody(MethodDecl method) {
+		try {
+			_skipped = false;
+			parseStatements(method.statementList);
+			method.isIncomplete = _skipped;
+
+			return !_skipped && _currentToken.getTokenType() == TokenType.EOT;
+		} catch( SyntaxError e ) {
+			return false;
+		}
 	}
 
 	// Program ::= (ClassDeclaration)* eot
-	private Package parseProgram() throws SyntaxError {
+	private Package parseProgram() {
+		long start = _currentToken.getTokenPosition();
 		ClassDeclList classList = new ClassDeclList();
 
-		while (_currentToken != null && _currentToken.getTokenType() != TokenType.EOT) {
-			classList.add(parseClassDeclaration());
+		while (_currentToken.getTokenType() != TokenType.EOT) {
+			try {
+				classList.add(parseClassDeclaration());
+			} catch( SyntaxError e ) {
+				skipTo(TokenType.CLASS);
+			}
 		}
 
-		return new Package(classList, new SourcePosition(0));
+		return new Package(classList, spanFrom(start), _types);
 	}
 
 	// ClassDeclaration ::= class identifier { (FieldDeclaration|MethodDeclaration)* }
 	private ClassDecl parseClassDeclaration() throws SyntaxError {
+		long start = _currentToken.getTokenPosition();
 		accept(TokenType.CLASS);
 
 		ClassDecl Class = new ClassDecl(_currentToken.getTokenText(), new FieldDeclList(), new MethodDeclList(),
-				_currentToken.getTokenPosition());
+				SourcePosition.NONE);
 
 		accept(TokenType.ID);
-		accept(TokenType.LBRACE);
-
-		while (!acceptOptional(TokenType.RBRACE)) {
-			FieldDecl tempField = null;
-			MethodDecl tempMethod = null;
 
-			boolean isPrivate = false;
-			TypeDenoter type = null;
-			ParameterDeclList paramaters = new ParameterDeclList();
-			StatementList statements = new StatementList();
+		try {
+			accept(TokenType.LBRACE);
+		} catch( SyntaxError e ) {
+			// The class keeps its name, and whatever members follow a {, so that
+			//  its uses elsewhere are not reported as errors too
+			skipToBody();
 
-			boolean isMethodDeclaration = false;
+			if (!acceptOptional(TokenType.LBRACE)) {
+				Class.posn = spanFrom(start);
+				return Class;
+			}
+		}
 
-			String optionalVisibility = _currentToken.getTokenText();
-			if (acceptOptional(TokenType.VISIBILITY) && optionalVisibility.equals("private")) {
-				isPrivate = true;
+		while (!acceptOptional(TokenType.RBRACE)) {
+			try {
+				parseMemberDeclaration(Class);
+			} catch( SyntaxError e ) {
+				skipPastError();
+
+				// The class is not closed; keep the members it has
+				if (atClassBoundary()) {
+					break;
+				}
 			}
+		}
 
-			boolean isStatic = acceptOptional(TokenType.ACCESS);
-			String className = null;
+		Class.posn = spanFrom(start);
+		return Class;
+	}
 
-			SourcePosition typePos = _currentToken.getTokenPosition();
-			if (acceptOptional(TokenType.VOID)) {
-				isMethodDeclaration = true;
-				type = new BaseType(TypeKind.VOID, typePos);
-			} else {
-				className = _currentToken.getTokenText();
-				type = parseType();
-			}
+	// MemberDeclaration ::= FieldDeclaration | MethodDeclaration, added to Class
+	private void parseMemberDeclaration(ClassDecl Class) throws SyntaxError {
+		long memberStart = _currentToken.getTokenPosition();
+		_skipped = false;
+		FieldDecl tempField = null;
+		MethodDecl tempMethod = null;
 
-			String id = _currentToken.getTokenText();
-			accept(TokenType.ID);
+		boolean isPrivate = false;
+		TypeDenoter type = null;
+		ParameterDeclList paramaters = new ParameterDeclList();
+		StatementList statements = new StatementList();
 
-			if (isMethodDeclaration || _currentToken.getTokenType() == TokenType.LPAREN) {
-				accept(TokenType.LPAREN);
+		boolean isMethodDeclaration = false;
 
-				if (!acceptOptional(TokenType.RPAREN)) {
-					paramaters = parseParameters(Class.name);
-					accept(TokenType.RPAREN);
-				}
+		String optionalVisibility = _currentToken.getTokenText();
+		if (acceptOptional(TokenType.VISIBILITY) && optionalVisibility.equals("private")) {
+			isPrivate = true;
+		}
 
-				accept(TokenType.LBRACE);
+		boolean isStatic = acceptOptional(TokenType.ACCESS);
+		String className = null;
 
-				statements = parseMethodDeclaration();
+		if (acceptOptional(TokenType.VOID)) {
+			isMethodDeclaration = true;
+			type = Types.base(TypeKind.VOID);
+		} else {
+			className = _currentToken.getTokenText();
+			type = parseType();
+		}
 
-				tempField = new FieldDecl(isPrivate, isStatic, type, id, _currentToken.getTokenPosition(), className);
-				tempMethod = new MethodDecl(tempField, paramaters, statements, _currentToken.getTokenPosition());
+		String id = _currentToken.getTokenText();
+		accept(TokenType.ID);
 
-				Class.methodDeclList.add(tempMethod);
-			} else {
-				tempField = new FieldDecl(isPrivate, isStatic, type, id, _currentToken.getTokenPosition(), className);
+		if (isMethodDeclaration || _currentToken.getTokenType() == TokenType.LPAREN) {
+			accept(TokenType.LPAREN);
 
-				accept(TokenType.SEMICOLON);
-				Class.fieldDeclList.add(tempField);
+			if (!acceptOptional(TokenType.RPAREN)) {
+				paramaters = parseParameters(Class.name);
+				accept(TokenType.RPAREN);
 			}
-		}
 
-		return Class;
+			accept(TokenType.LBRACE);
+
+			statements = _bodies == null ? parseMethodDeclaration() : skipMethodBody();
+
+			tempField = new FieldDecl(isPrivate, isStatic, type, id, spanFrom(memberStart), className);
+			tempMethod = new MethodDecl(tempField, paramaters, statements, spanFrom(memberStart));
+			tempMethod.isIncomplete = _skipped;
+
+			Class.methodDeclList.add(tempMethod);
+		} else {
+			accept(TokenType.SEMICOLON);
+
+			tempField = new FieldDecl(isPrivate, isStatic, type, id, spanFrom(memberStart), className);
+			Class.fieldDeclList.add(tempField);
+		}
 	}
 
 	private StatementList parseMethodDeclaration() throws SyntaxError {
 		StatementList statementList = new StatementList();
 
-		while (!acceptOptional(TokenType.RBRACE)) {
-			statementList.add(parseStatement());
-		}
+		parseStatements(statementList);
 
 		return statementList;
 	}
 
-	private Statement parseStatement() {
+	// Skips statements up to and including the closing } by counting braces, and
+	//  records where they are in the source, from the start of the first of them
+	//  to the end of the }, for a later parseBody()
+	private StatementList skipMethodBody() throws SyntaxError {
+		int first = SourcePosition.offset(_currentToken.getTokenPosition());
+		int depth = 0;
+
+		while (depth > 0 || _currentToken.getTokenType() != TokenType.RBRACE) {
+			TokenType type = _currentToken.getTokenType();
+
+			if (type == TokenType.EOT) {
+				accept(TokenType.RBRACE);
+			} else if (type == TokenType.LBRACE) {
+				depth++;
+			} else if (type == TokenType.RBRACE) {
+				depth--;
+			}
+
+			_currentToken = _scanner.scan();
+		}
+
+		_bodies.add(new int[] { first, SourcePosition.end(_currentToken.getTokenPosition()) });
+		accept(TokenType.RBRACE);
+
+		return new StatementList();
+	}
+
+	// Statements up to and including the closing }. A statement that does not
+	//  parse is skipped; running into the next class instead of a } ends the
+	//  whole member.
+	//
+	// The if, while and { braced } blocks that are still open are kept on a stack
+	//  of their own instead of the Java stack, so a body nests as deep as it likes.
+	//  An error ends whatever is open above the innermost block around it, which
+	//  is then skipped to, as if each block had been parsed by a call of its own.
+	private void parseStatements(StatementList statementList) throws SyntaxError {
+		List<OpenStatement> open = new ArrayList<OpenStatement>();
+		Statement statement = null;
+
+		open.add(new OpenStatement(StatementKind.BLOCK, statementList, SourcePosition.NONE));
+
+		while (true) {
+			OpenStatement top = open.get(open.size() - 1);
+
+			try {
+				if (statement != null) {
+					// A statement is complete; hand it to what is open around it
+					if (top.kind == StatementKind.BLOCK) {
+						top.statements.add(statement);
+						statement = null;
+					} else if (top.kind == StatementKind.WHILE) {
+						open.remove(open.size() - 1);
+						statement = new WhileStmt(top.cond, statement, spanFrom(top.start));
+					} else if (top.thenStmt == null) {
+						top.thenStmt = statement;
+						statement = null;
+
+						if (!acceptOptional(TokenType.ELSE)) {
+							open.remove(open.size() - 1);
+							statement = new IfStmt(top.cond, top.thenStmt, null, spanFrom(top.start));
+						}
+					} else {
+						open.remove(open.size() - 1);
+						statement = new IfStmt(top.cond, top.thenStmt, statement, spanFrom(top.start));
+					}
+				} else if (top.kind == StatementKind.BLOCK) {
+					if (acceptOptional(TokenType.RBRACE)) {
+						open.remove(open.size() - 1);
+
+						if (open.isEmpty()) {
+							return;
+						}
+
+						statement = new BlockStmt(top.statements, spanFrom(top.start));
+					} else {
+						statement = parseStatement(open);
+					}
+				} else {
+					// The body of an if, else or while: a { braced } list or a single statement
+					long start = _currentToken.getTokenPosition();
+
+					if (acceptOptional(TokenType.LBRACE)) {
+						open.add(new OpenStatement(StatementKind.BLOCK, new StatementList(), start));
+					} else {
+						statement = parseStatement(open);
+					}
+				}
+			} catch( SyntaxError e ) {
+				while (open.get(open.size() - 1).kind != StatementKind.BLOCK) {
+					open.remove(open.size() - 1);
+				}
+
+				statement = null;
+				_skipped = true;
+				skipPastError();
+
+				if (atClassBoundary()) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	// A statement, or null for an if or while, which is left open for its body
+	private Statement parseStatement(List<OpenStatement> open) {
 		Token curr = _currentToken;
-		SourcePosition pos = _currentToken.getTokenPosition();
+		long pos = _currentToken.getTokenPosition();
 		Expression expression = null;
 
 		if (acceptOptional(TokenType.RETURN)) {
 			if (_currentToken.getTokenType() != TokenType.SEMICOLON) {
-				expression = parseOrOperator();
+				expression = parseBinaryExpression();
 			}
 			accept(TokenType.SEMICOLON);
 
-			return new ReturnStmt(expression, pos);
+			return new ReturnStmt(expression, spanFrom(pos));
 		}
 		else if (acceptOptional(TokenType.WHILE)) {
-			Statement whileStmt = null;
-
 			accept(TokenType.LPAREN);
-			expression = parseOrOperator();
+			expression = parseBinaryExpression();
 			accept(TokenType.RPAREN);
 
-			if (!acceptOptional(TokenType.LBRACE)) {
-				whileStmt = parseStatement();
-			} else {
-				StatementList list = new StatementList();
-
-				while (!acceptOptional(TokenType.RBRACE)) {
-					list.add(parseStatement());
-				}
-
-				whileStmt = new BlockStmt(list, pos);
-			}
-
-			return new WhileStmt(expression, whileStmt, pos);
+			open.add(new OpenStatement(StatementKind.WHILE, expression, pos));
+			return null;
 		}
 		else if (acceptOptional(TokenType.IF)) {
-			Statement ifStmt = null;
-			Statement elseStmt = null;
-
 			accept(TokenType.LPAREN);
-			expression = parseOrOperator();
+			expression = parseBinaryExpression();
 			accept(TokenType.RPAREN);
 
-			if (acceptOptional(TokenType.LBRACE)) {
-				StatementList list = new StatementList();
-
-				while (!acceptOptional(TokenType.RBRACE)) {
-					list.add(parseStatement());
-				}
-				ifStmt = new BlockStmt(list, pos);
-			}
-			else {
-				ifStmt = parseStatement();
-			}
-
-			if (acceptOptional(TokenType.ELSE)) {
-				if (acceptOptional(TokenType.LBRACE)) {
-					StatementList list = new StatementList();
-
-					while (!acceptOptional(TokenType.RBRACE)) {
-						list.add(parseStatement());
-					}
-
-					elseStmt = new BlockStmt(list, pos);
-				}
-				else {
-					elseStmt = parseStatement();
-				}
-			}
-
-			return new IfStmt(expression, ifStmt, elseStmt, pos);
-
+			open.add(new OpenStatement(StatementKind.IF, expression, pos));
+			return null;
 		}
 		else if (_currentToken.getTokenType() == TokenType.ID || _currentToken.getTokenType() == TokenType.THIS) {
 			Reference reference = parseReference();
 			Statement statement = null;
 
 			if (acceptOptional(TokenType.EQUAL)) {
-				Expression assignExpression = parseOrOperator();
-				statement = new AssignStmt(reference, assignExpression, pos);
+				Expression assignExpression = parseBinaryExpression();
+				statement = new AssignStmt(reference, assignExpression, spanFrom(pos));
 			}
 			else if (acceptOptional(TokenType.LBRACKET)) {
 				if (!acceptOptional(TokenType.RBRACKET)) {
-					Expression ex1 = parseOrOperator();
+					Expression ex1 = parseBinaryExpression();
 					accept(TokenType.RBRACKET);
 					accept(TokenType.EQUAL);
-					Expression ex2 = parseOrOperator();
+					Expression ex2 = parseBinaryExpression();
 
-					statement = new IxAssignStmt(reference, ex1, ex2, pos);
+					statement = new IxAssignStmt(reference, ex1, ex2, spanFrom(pos));
 				}
 				else {
+					ArrayType type = _types.arrayOf(_types.classType(curr.getTokenText()));
 					Token idToken = _currentToken;
 
 					accept(TokenType.ID);
+					VarDecl decl = new VarDecl(type, idToken.getTokenText(), spanFrom(pos), curr.getTokenText());
 					accept(TokenType.EQUAL);
-					Expression valDecal = parseOrOperator();
+					Expression valDecal = parseBinaryExpression();
 
-					statement = new VarDeclStmt(
-							new VarDecl(new ArrayType(new ClassType(new Identifier(curr),
-									pos), pos), idToken.getTokenText(), pos, curr.getTokenText()),
-							valDecal, pos);
+					statement = new VarDeclStmt(decl, valDecal, SourcePosition.NONE);
 				}
 			}
 			else if (acceptOptional(TokenType.LPAREN)) {
@@ -237,19 +454,21 @@ public class Parser {
 					accept(TokenType.RPAREN);
 				}
 
-				statement = new CallStmt(reference, list, pos);
+				statement = new CallStmt(reference, list, SourcePosition.NONE);
 			}
 			else {
 				Token idToken = _currentToken;
 
 				accept(TokenType.ID);
+				VarDecl decl = new VarDecl(_types.classType(curr.getTokenText()), idToken.getTokenText(), spanFrom(pos), curr.getTokenText());
 				accept(TokenType.EQUAL);
-				Expression valDecal = parseOrOperator();
+				Expression valDecal = parseBinaryExpression();
 
-				statement = new VarDeclStmt(new VarDecl(new ClassType(new Identifier(curr), pos), idToken.getTokenText(), pos, curr.getTokenText()),valDecal, pos);
+				statement = new VarDeclStmt(decl, valDecal, SourcePosition.NONE);
 			}
 
 			accept(TokenType.SEMICOLON);
+			statement.posn = spanFrom(pos);
 			return statement;
 		}
 		else {
@@ -257,22 +476,24 @@ public class Parser {
 
 			Token idToken = _currentToken;
 			accept(TokenType.ID);
+			VarDecl decl = new VarDecl(type, idToken.getTokenText(), spanFrom(pos), curr.getTokenText());
 			accept(TokenType.EQUAL);
 
-			Expression valDecal = parseOrOperator();
+			Expression valDecal = parseBinaryExpression();
 			accept(TokenType.SEMICOLON);
 
-			return new VarDeclStmt(
-					new VarDecl(type, idToken.getTokenText(), pos, curr.getTokenText()), valDecal, pos);
+			return new VarDeclStmt(decl, valDecal, spanFrom(pos));
 		}
 	}
 
-	private Expression parseExpression() {
+	// An operand of a binary expression. One that has an expression of its own
+	//  inside, other than a reference, is left open for it and null returned.
+	private Expression parseOperand(List<OpenExpression> open) {
 		Token curr = _currentToken;
+		long start = curr.getTokenPosition();
 		Expression exp = null;
 
 		if (acceptOptional(TokenType.NEW)) {
-			Expression newExp = null;
 			curr = _currentToken;
 
 			TokenType[] param = { TokenType.ID, TokenType.INT };
@@ -282,177 +503,207 @@ public class Parser {
 				if (acceptOptional(TokenType.LPAREN)) {
 					accept(TokenType.RPAREN);
 
-					newExp = new NewObjectExpr(new ClassType(new Identifier(curr), curr.getTokenPosition()), curr.getTokenPosition());
+					exp = new NewObjectExpr(_types.classType(curr.getTokenText()), spanFrom(start));
 				}
 				else {
 					accept(TokenType.LBRACKET);
-					Expression idArrExp = parseOrOperator();
-					accept(TokenType.RBRACKET);
-
-					newExp = new NewArrayExpr(new ClassType(new Identifier(curr), curr.getTokenPosition()), idArrExp, curr.getTokenPosition());
+					push(open, ExpressionKind.NEW_ARRAY, start).type = _types.classType(curr.getTokenText());
+					openBinary(open, 1);
 				}
 			}
 			else {
 				accept(TokenType.LBRACKET);
-				Expression intArrExp = parseOrOperator();
-				accept(TokenType.RBRACKET);
-
-				newExp = new NewArrayExpr(new BaseType(TypeKind.INT, curr.getTokenPosition()), intArrExp, curr.getTokenPosition());
+				push(open, ExpressionKind.NEW_ARRAY, start).type = Types.base(TypeKind.INT);
+				openBinary(open, 1);
 			}
-
-			exp = newExp;
 		}
 		else if (acceptOptional(TokenType.LPAREN)) {
-			exp = parseOrOperator();
-			accept(TokenType.RPAREN);
+			push(open, ExpressionKind.PAREN, start);
+			openBinary(open, 1);
 		}
 		else if (acceptOptional(TokenType.MINUS) || acceptOptional(TokenType.UNOP)) {
-			Expression unopExp = parseExpression();
-			exp = new UnaryExpr(new Operator(curr), unopExp, curr.getTokenPosition());
+			push(open, ExpressionKind.UNARY, start).operator = curr;
 		}
 		else if (_currentToken.getTokenType() == TokenType.ID || _currentToken.getTokenType() == TokenType.THIS) {
 			Reference reference = parseReference();
 
 			if (acceptOptional(TokenType.LBRACKET)) {
-				Expression ixExp = parseOrOperator();
-				accept(TokenType.RBRACKET);
-
-				exp = new IxExpr(reference, ixExp, curr.getTokenPosition());
+				push(open, ExpressionKind.INDEX, start).reference = reference;
+				openBinary(open, 1);
 			} else if (acceptOptional(TokenType.LPAREN)) {
-				ExprList argumentList = new ExprList();
 				if (!acceptOptional(TokenType.RPAREN)) {
-					argumentList = parseArgumentList();
-					accept(TokenType.RPAREN);
+					OpenExpression call = push(open, ExpressionKind.CALL, start);
+					call.reference = reference;
+					call.arguments = new ExprList();
+					openBinary(open, 1);
+				} else {
+					exp = new CallExpr(reference, new ExprList(), spanFrom(start));
 				}
-
-				exp = new CallExpr(reference, argumentList, curr.getTokenPosition());
 			}
 			else {
-				exp = new RefExpr(reference, curr.getTokenPosition());
+				exp = new RefExpr(reference, spanFrom(start));
 			}
 		} else if (acceptOptional(TokenType.NULL)) {
-			exp = new LiteralExpr(new NullLiteral(curr), curr.getTokenPosition());
+			exp = new LiteralExpr(new NullLiteral(curr), start);
 		}
 		else if (acceptOptional(TokenType.INTLITERAL)) {
-			exp = new LiteralExpr(new IntLiteral(curr), curr.getTokenPosition());
+			exp = new LiteralExpr(new IntLiteral(curr), start);
 		}
 		else if (acceptOptional(TokenType.TRUE) || acceptOptional(TokenType.FALSE)) {
-			exp = new LiteralExpr(new BooleanLiteral(curr), curr.getTokenPosition());
+			exp = new LiteralExpr(new BooleanLiteral(curr), start);
 		}
 		else {
-			_errors.reportError("Unexpected Token " + _currentToken.getTokenType() + " detected on " + _currentToken.getTokenPosition().toString());
+			_errors.reportError("Unexpected Token " + _currentToken.getTokenType() + " detected on " + _errors.describe(_currentToken.getTokenPosition()));
 			throw new SyntaxError();
 		}
 
 		return exp;
 	}
 
-	private Expression parseOrOperator() {
-		SourcePosition pos = _currentToken.getTokenPosition();
-		Expression leftExpr = parseAndOperator();
-
-		Token operator = _currentToken;
-		while (_currentToken.getTokenText().equals("||")) {
-			accept(TokenType.BINOP);
+	// Binary expressions by precedence climbing. Every operator is left-associative,
+	//  and the levels are the ones the old one-method-per-level chain had:
+	//    1  ||
+	//    2  &&
+	//    3  !=
+	//    4  ==  <  <=  >  >=
+	//    5  +  -
+	//    6  *  /
+	//
+	// Everything that is still open, from the operators that wait for a right
+	//  operand to the parentheses, brackets and calls around them, is kept on a
+	//  stack instead of the Java stack, so an expression nests as deep as it likes.
+	private Expression parseBinaryExpression() {
+		List<OpenExpression> open = new ArrayList<OpenExpression>();
+		Expression exp = null;
 
-			Expression rightExpr = parseAndOperator();
-			leftExpr = new BinaryExpr(new Operator(operator), leftExpr, rightExpr, pos);
+		openBinary(open, 1);
 
-			operator = _currentToken;
-		}
+		while (true) {
+			if (exp == null) {
+				exp = parseOperand(open);
+				continue;
+			}
 
-		return leftExpr;
-	}
+			// exp is complete; hand it to what is open around it
+			OpenExpression top = open.get(open.size() - 1);
 
-	private Expression parseAndOperator() {
-		SourcePosition pos = _currentToken.getTokenPosition();
-		Expression leftExpr = parseEquality();
+			if (top.kind == ExpressionKind.BINARY) {
+				if (top.left != null) {
+					exp = new BinaryExpr(new Operator(top.operator), top.left, exp, spanFrom(top.start));
+				}
 
-		Token operator = _currentToken;
-		while (_currentToken.getTokenText().equals("&&")) {
-			accept(TokenType.BINOP);
+				// Followed by any operators binding at least as tight as top.minPrecedence
+				Token operator = _currentToken;
+				int precedence = precedence(operator);
 
-			Expression rightExpr = parseEquality();
-			leftExpr = new BinaryExpr(new Operator(operator), leftExpr, rightExpr, pos);
+				if (precedence == 0 || precedence < top.minPrecedence) {
+					open.remove(open.size() - 1);
 
-			operator = _currentToken;
-		}
+					if (open.isEmpty()) {
+						return exp;
+					}
 
-		return leftExpr;
-	}
+					continue;
+				}
 
-	private Expression parseEquality() {
-		SourcePosition pos = _currentToken.getTokenPosition();
-		Expression leftExpr = parseComparators();
+				acceptOperator(operator);
 
-		Token operator = _currentToken;
-		while (acceptOptional(TokenType.EQUALEQUAL) || acceptOptional(TokenType.NEQ)) {
-			Expression rightExpr = parseComparators();
-			leftExpr = new BinaryExpr(new Operator(operator), leftExpr, rightExpr, pos);
+				top.left = exp;
+				top.operator = operator;
+				exp = null;
+				openBinary(open, precedence + 1);
+				continue;
+			}
 
-			operator = _currentToken;
-		}
+			open.remove(open.size() - 1);
 
-		return leftExpr;
-	}
+			switch (top.kind) {
+				case UNARY:
+					exp = new UnaryExpr(new Operator(top.operator), exp, spanFrom(top.start));
+					break;
 
-	private Expression parseComparators() {
-		SourcePosition pos = _currentToken.getTokenPosition();
-		Expression leftExpr = parseAdditive();
+				case PAREN:
+					accept(TokenType.RPAREN);
+					break;
 
-		Token operator = _currentToken;
-		while (acceptOptional(TokenType.GT) ||
-				acceptOptional(TokenType.LT) ||
-				acceptOptional(TokenType.GTEQ) ||
-				acceptOptional(TokenType.LTEQ) ||
-				acceptOptional(TokenType.EQUALEQUAL)) {
-			Expression rightExpr = parseAdditive();
-			leftExpr = new BinaryExpr(new Operator(operator), leftExpr, rightExpr, pos);
+				case NEW_ARRAY:
+					accept(TokenType.RBRACKET);
+					exp = new NewArrayExpr(top.type, exp, spanFrom(top.start));
+					break;
 
-			operator = _currentToken;
+				case INDEX:
+					accept(TokenType.RBRACKET);
+					exp = new IxExpr(top.reference, exp, spanFrom(top.start));
+					break;
+
+				case CALL:
+					top.arguments.add(exp);
+
+					if (moreArguments(acceptOptional(TokenType.COMMA))) {
+						exp = null;
+						open.add(top);
+						openBinary(open, 1);
+					} else {
+						accept(TokenType.RPAREN);
+						exp = new CallExpr(top.reference, top.arguments, spanFrom(top.start));
+					}
+					break;
+			}
 		}
-
-		return leftExpr;
 	}
 
-	private Expression parseAdditive() {
-		SourcePosition pos = _currentToken.getTokenPosition();
-		Expression leftExpr = parseMultiplicative();
+	// Opens an operand followed by any operators binding at least as tight as
+	//  minPrecedence, starting at the current token
+	private void openBinary(List<OpenExpression> open, int minPrecedence) {
+		push(open, ExpressionKind.BINARY, _currentToken.getTokenPosition()).minPrecedence = minPrecedence;
+	}
 
-		Token operator = _currentToken;
-		while (_currentToken.getTokenText().equals("+") || _currentToken.getTokenText().equals("-")) {
-			if (!acceptOptional(TokenType.PLUS)) {
-				accept(TokenType.MINUS);
-			}
+	private static OpenExpression push(List<OpenExpression> open, ExpressionKind kind, long start) {
+		OpenExpression expression = new OpenExpression(kind, start);
+		open.add(expression);
+		return expression;
+	}
 
-			Expression rightExpr = parseMultiplicative();
-			leftExpr = new BinaryExpr(new Operator(operator), leftExpr, rightExpr, pos);
+	// Precedence of token as a binary operator, 0 if it is not one
+	private static int precedence(Token token) {
+		switch (token.getTokenType()) {
+			case BINOP:
+				return token.getTokenText() == "||" ? 1 : 2;
 
-			operator = _currentToken;
-		}
+			case NEQ:
+				return 3;
 
-		return leftExpr;
-	}
+			case EQUALEQUAL:
+			case LT:
+			case LTEQ:
+			case GT:
+			case GTEQ:
+				return 4;
 
-	private Expression parseMultiplicative() {
-		SourcePosition pos = _currentToken.getTokenPosition();
-		Expression leftExpr = parseExpression();
+			case PLUS:
+				// The scanner hands out '/' with the kind PLUS
+				return token.getTokenText() == "/" ? 6 : 5;
 
-		Token operator = _currentToken;
-		while (_currentToken.getTokenText().equals("*") || _currentToken.getTokenText().equals("/")) {
-			if (_currentToken.getTokenText().equals("*")) {
-				accept(TokenType.MULT);
-			} else if (_currentToken.getTokenText().equals("/")) {
-				acceptOptional(TokenType.DIV);
-			}
+			case MINUS:
+				return 5;
 
-			Expression rightExpr = parseExpression();
-			leftExpr = new BinaryExpr(new Operator(operator), leftExpr, rightExpr, pos);
+			case MULT:
+			case DIV:
+				return 6;
 
-			operator = _currentToken;
+			default:
+				return 0;
 		}
+	}
 
-		return leftExpr;
+	private void acceptOperator(Token operator) {
+		// '/' is only ever accepted as DIV, which the scanner does not produce yet,
+		//  so a division still ends in a syntax error at its right operand
+		if (operator.getTokenText() == "/") {
+			acceptOptional(TokenType.DIV);
+		} else {
+			accept(operator.getTokenType());
+		}
 	}
 
 	private TypeDenoter parseType() {
@@ -462,25 +713,25 @@ public class Parser {
 
 		if (type == TokenType.BOOLEAN && acceptOptional(TokenType.LBRACKET)) {
 			_errors.reportError("Boolean Array is not a valid type");
-			return new BaseType(TypeKind.UNSUPPORTED, typeToken.getTokenPosition());
+			return Types.base(TypeKind.UNSUPPORTED);
 		} else if (acceptOptional(TokenType.LBRACKET)) {
 			accept(TokenType.RBRACKET);
 
 			if (type == TokenType.INT) {
-				return new ArrayType(new BaseType(TypeKind.INT, typeToken.getTokenPosition()), typeToken.getTokenPosition());
+				return _types.arrayOf(Types.base(TypeKind.INT));
 			}
 			else {
-				return new ArrayType(new ClassType(new Identifier(typeToken), typeToken.getTokenPosition()), typeToken.getTokenPosition());
+				return _types.arrayOf(_types.classType(typeToken.getTokenText()));
 			}
 		}
 
 		if (type == TokenType.INT) {
-			return new BaseType(TypeKind.INT, typeToken.getTokenPosition());
+			return Types.base(TypeKind.INT);
 		} else if (type == TokenType.BOOLEAN) {
-			return new BaseType(TypeKind.BOOLEAN, typeToken.getTokenPosition());
+			return Types.base(TypeKind.BOOLEAN);
 		}
 
-		return new ClassType(new Identifier(typeToken), typeToken.getTokenPosition());
+		return _types.classType(typeToken.getTokenText());
 	}
 
 	private ParameterDeclList parseParameters(String cn) throws SyntaxError {
@@ -490,20 +741,23 @@ public class Parser {
 
 		while (_currentToken.getTokenType() != TokenType.RPAREN) {
 			if (!comma) {
-				_errors.reportError("Syntax Error: Missing Comma Detected on " + _currentToken.getTokenPosition().toString());
+				_errors.reportError("Syntax Error: Missing Comma Detected on " + _errors.describe(_currentToken.getTokenPosition()));
 				throw new SyntaxError();
 			}
 
-			ParameterDecl param = new ParameterDecl(parseType(), _currentToken.getTokenText(), _currentToken.getTokenPosition(), cn);
+			long start = _currentToken.getTokenPosition();
+			TypeDenoter type = parseType();
+			String name = _currentToken.getTokenText();
 
 			accept(TokenType.ID);
+			ParameterDecl param = new ParameterDecl(type, name, spanFrom(start), cn);
 			comma = acceptOptional(TokenType.COMMA);
 
 			paramList.add(param);
 		}
 
 		if (comma) {
-			_errors.reportError("Syntax Error: Unexpected Comma Detected on " + _currentToken.getTokenPosition().toString());
+			_errors.reportError("Syntax Error: Unexpected Comma Detected on " + _errors.describe(_currentToken.getTokenPosition()));
 
 			throw new SyntaxError();
 		}
@@ -514,6 +768,7 @@ public class Parser {
 	private Reference parseReference() {
 		Reference reference = null;
 		Token curr = _currentToken;
+		long start = curr.getTokenPosition();
 
 		TokenType[] refTokenTypes = { TokenType.ID, TokenType.THIS };
 
@@ -528,62 +783,122 @@ public class Parser {
 			curr = _currentToken;
 			accept(TokenType.ID);
 
-			reference = new QualRef(reference, new Identifier(curr), curr.getTokenPosition());
+			reference = new QualRef(reference, new Identifier(curr), spanFrom(start));
 		}
 
 		return reference;
 	}
 
 	private ExprList parseArgumentList() {
-		boolean comma = true;
 		ExprList list = new ExprList();
+		boolean more = moreArguments(true);
 
-		while (_currentToken.getTokenType() != TokenType.RPAREN) {
+		while (more) {
+			list.add(parseBinaryExpression());
+			more = moreArguments(acceptOptional(TokenType.COMMA));
+		}
+
+		return list;
+	}
+
+	// Whether another argument follows, at the start of a list or after one,
+	//  given whether a comma came before it
+	private boolean moreArguments(boolean comma) {
+		if (_currentToken.getTokenType() != TokenType.RPAREN) {
 			if (!comma) {
-				_errors.reportError("Syntax Error: Missing Comma Detected on " + _currentToken.getTokenPosition().toString());
+				_errors.reportError("Syntax Error: Missing Comma Detected on " + _errors.describe(_currentToken.getTokenPosition()));
 				throw new SyntaxError();
 			}
 
-			list.add(parseOrOperator());
-			comma = acceptOptional(TokenType.COMMA);
+			return true;
 		}
 
 		if (comma) {
-			_errors.reportError("Syntax Error: Unexpected Comma Detected on " + _currentToken.getTokenPosition().toString());
+			_errors.reportError("Syntax Error: Unexpected Comma Detected on " + _errors.describe(_currentToken.getTokenPosition()));
 
 			throw new SyntaxError();
 		}
 
-		return list;
+		return false;
+	}
+
+	// Panic mode after an error in a statement or member: skips past the next ;
+	//  or past the next { } block, which ends a statement, a field or a method,
+	//  or up to a } that closes an enclosing block or class
+	private void skipPastError() {
+		int depth = 0;
+
+		while (!atClassBoundary()) {
+			TokenType type = _currentToken.getTokenType();
+
+			if (type == TokenType.RBRACE && depth-- == 0) {
+				return;
+			}
+
+			_currentToken = _scanner.scan();
+
+			if (type == TokenType.LBRACE) {
+				depth++;
+			} else if (depth == 0 && (type == TokenType.SEMICOLON || type == TokenType.RBRACE)) {
+				return;
+			}
+		}
+	}
+
+	// Panic mode after an error in the name of a class: skips to the next class
+	private void skipTo(TokenType type) {
+		while (_currentToken.getTokenType() != type && _currentToken.getTokenType() != TokenType.EOT) {
+			_currentToken = _scanner.scan();
+		}
+	}
+
+	// Panic mode after an error in the rest of a class head: skips to the { that
+	//  opens its body, or to the next class if there is none
+	private void skipToBody() {
+		while (_currentToken.getTokenType() != TokenType.LBRACE && !atClassBoundary()) {
+			_currentToken = _scanner.scan();
+		}
+	}
+
+	private boolean atClassBoundary() {
+		return _currentToken.getTokenType() == TokenType.CLASS || _currentToken.getTokenType() == TokenType.EOT;
 	}
 
 	// This method will accept the token and retrieve the next token.
 	//  Can be useful if you want to error check and accept all-in-one.
 	private void accept(TokenType expectedType) throws SyntaxError {
 		if (_currentToken.getTokenType() == expectedType) {
+			_lastPosition = _currentToken.getTokenPosition();
 			_currentToken = _scanner.scan();
 			return;
 		}
 
 		//  "Expected token X, but got Y"
-		_errors.reportError("Syntax Error: Expected token " + expectedType + ", but got " + _currentToken.getTokenType() + " on " + _currentToken.getTokenPosition().toString());
+		_errors.reportError("Syntax Error: Expected token " + expectedType + ", but got " + _currentToken.getTokenType() + " on " + _errors.describe(_currentToken.getTokenPosition()));
 		throw new SyntaxError();
 	}
 
 	private TokenType acceptMultiple(TokenType[] expectedTypes) throws SyntaxError {
 		for (TokenType expectedType : expectedTypes) {
 			if (_currentToken.getTokenType() == expectedType) {
+				_lastPosition = _currentToken.getTokenPosition();
 				_currentToken = _scanner.scan();
 				return expectedType;
 			}
 		}
 
-		_errors.reportError("Syntax Error: Unexpected token " + _currentToken.getTokenType() + " detected on " + _currentToken.getTokenPosition().toString());
+		_errors.reportError("Syntax Error: Unexpected token " + _currentToken.getTokenType() + " detected on " + _errors.describe(_currentToken.getTokenPosition()));
 		throw new SyntaxError();
 	}
 
+	// Span from start to the end of the most recently accepted token
+	private long spanFrom(long start) {
+		return SourcePosition.span(start, _lastPosition);
+	}
+
 	private boolean acceptOptional(TokenType expectedType) {
 		if (_currentToken.getTokenType() == expectedType) {
+			_lastPosition = _currentToken.getTokenPosition();
 			_currentToken = _scanner.scan();
 			return true;
 		}
@@ -0,0 +1,135 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.concurrent.locks.LockSupport;
+
+import miniJava.ErrorReporter;
+
+// Runs a Scanner ahead of the Parser on its own thread. Tokens are handed over in
+//  batches through a bounded ring with one producer (the scanner thread) and one
+//  consumer (whoever calls scan()), so the two sides only touch the shared
+//  counters once per batch.
+//
+// Each batch is a TokenBuffer, which holds the scan errors with the token they
+//  were found on, and is handed out through a cursor that reports them when it
+//  hands out that token. So diagnostics come out as with a plain Scanner, which
+//  also stops where the reporter the parser shares with it fills up.
+//
+// If parsing stops before EOT, call close() so the scanner thread stops too. If
+//  the scanner thread fails, with an Error as much as with an exception, scan()
+//  throws an IllegalStateException caused by that failure instead of waiting for
+//  tokens that will never come.
+public final class PipelinedScanner implements TokenSource, AutoCloseable {
+	private static final int BATCH_SIZE = 1024;
+	private static final int RING_SIZE = 16;
+
+	private final TokenBuffer[] _ring = new TokenBuffer[RING_SIZE];
+	private volatile long _head;
+	private volatile long _tail;
+	private volatile boolean _closed;
+	private volatile Thread _consumer;
+	private volatile Throwable _failure;
+
+	private final Thread _producer;
+	private final ErrorReporter _errors;
+	private final NameTable _names;
+
+	private TokenBuffer.Cursor _current;
+	private int _currentSize;
+	private Token _eot;
+
+	public PipelinedScanner( SourceBuffer source, ErrorReporter errors ) {
+		this(source, errors, new NameTable());
+	}
+
+	// Token text is interned through names on the thread that calls scan()
+	public PipelinedScanner( SourceBuffer source, ErrorReporter errors, NameTable names ) {
+		this._errors = errors;
+		this._names = names;
+		this._producer = new Thread(() -> produce(source), "miniJava-scanner");
+		this._producer.setDaemon(true);
+		this._producer.start();
+	}
+
+	public Token scan() {
+		if (_eot != null) {
+			return _eot;
+		}
+
+		if (_current == null || _current.index() == _currentSize) {
+			TokenBuffer batch = take();
+
+			_current = batch.pieceCursor(_names, _errors);
+			_currentSize = batch.size();
+		}
+
+		Token token = _current.scan();
+
+		if (token.getTokenType() == TokenType.EOT) {
+			_eot = token;
+		}
+
+		return token;
+	}
+
+	public void close() {
+		_closed = true;
+		LockSupport.unpark(_producer);
+	}
+
+	private void produce( SourceBuffer source ) {
+		try {
+			// Only this thread ever sees the scanner's own reporter and names
+			ErrorReporter scanErrors = new ErrorReporter(_errors.getMaxErrors(), _errors.getLineMap());
+			Scanner scanner = new Scanner(source, scanErrors, new NameTable());
+			boolean done = false;
+
+			while (!done && !_closed) {
+				TokenBuffer batch = scanner.tokenize(BATCH_SIZE);
+
+				done = batch.kind(batch.size() - 1) == TokenType.EOT;
+				put(batch);
+			}
+		} catch( Throwable e ) {
+			_failure = e;
+			LockSupport.unpark(_consumer);
+		}
+	}
+
+	private void put( TokenBuffer batch ) {
+		long tail = _tail;
+
+		while (tail - _head == RING_SIZE) {
+			if (_closed) {
+				return;
+			}
+
+			LockSupport.park(this);
+		}
+
+		_ring[(int) (tail % RING_SIZE)] = batch;
+		_tail = tail + 1;
+		LockSupport.unpark(_consumer);
+	}
+
+	private TokenBuffer take() {
+		long head = _head;
+
+		_consumer = Thread.currentThread();
+
+		while (_tail == head) {
+			if (_failure != null) {
+				throw new IllegalStateException("Scanning failed", _failure);
+			}
+
+			LockSupport.park(this);
+		}
+
+		TokenBuffer batch = _ring[(int) (head % RING_SIZE)];
+
+		_ring[(int) (head % RING_SIZE)] = null;
+		_head = head + 1;
+		LockSupport.unpark(_producer);
+
+		return batch;
+	}
+}
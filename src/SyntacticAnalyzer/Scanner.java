@@ -2,28 +2,58 @@ package miniJava.SyntacticAnalyzer;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import miniJava.ErrorReporter;
 
-public class Scanner {
-	private InputStream _in;
+public class Scanner implements TokenSource {
+	private SourceBuffer _source;
+	private ByteBuffer _buf;
+	private int _pos;
+	private int _limit;
 	private ErrorReporter _errors;
-	private StringBuilder _currentText;
+	private NameTable _names;
+	private int _tokenStart;
+	private String _spelling;
+	private int _value;
 	private char _currentChar;
-	private TokenMap TokenMap;
+	// The buffer tokenize() is filling, which keeps the errors of each token
+	private TokenBuffer _tokens;
+	// How many errors had been reported when the last of them was held
+	private int _held;
 
 	private boolean eot = false;
 
-	private int line = 1;
-
 	private final static char eolUnix = '\n';
 	private final static char eolWindows = '\r';
-	private final static char tab ='\t';
 
 	public Scanner( InputStream in, ErrorReporter errors ) {
-		this._in = in;
+		this(readStream(in, errors), errors);
+	}
+
+	public Scanner( SourceBuffer source, ErrorReporter errors ) {
+		this(source, errors, new NameTable());
+	}
+
+	public Scanner( SourceBuffer source, ErrorReporter errors, NameTable names ) {
+		this(source, errors, names, 0);
+	}
+
+	// Starts scanning at offset, which must lie between two tokens (not inside a
+	//  token or a comment)
+	Scanner( SourceBuffer source, ErrorReporter errors, NameTable names, int offset ) {
+		this(source, errors, names, offset, source.length());
+	}
+
+	// As above, but treats limit as the end of the input
+	Scanner( SourceBuffer source, ErrorReporter errors, NameTable names, int offset, int limit ) {
+		this._source = source;
+		this._buf = source.bytes();
+		this._pos = offset - 1;
+		this._limit = limit;
 		this._errors = errors;
-		this.TokenMap = new TokenMap();
+		this._names = names;
+		this._held = errors.getReportedCount();
 
 		if (!eot) {
 			nextChar();
@@ -31,27 +61,108 @@ public class Scanner {
 	}
 
 	public Token scan() {
-		if (eot) {
-			return null;
+		TokenType kind = nextToken();
+		String spelling = _spelling != null ? _spelling : _names.intern(_source, _tokenStart, _pos - _tokenStart);
+
+		return new Token(kind, spelling, SourcePosition.make(_tokenStart, _pos - _tokenStart), _value);
+	}
+
+	// Scans the rest of the input into packed form, ending with the EOT token.
+	//  No Token or String is created; the text of each entry
+	//  is sliced from the source buffer only when it is asked for.
+	//  The scan errors are reported as found, and also held in the buffer with
+	//  the token they were found on, see TokenBuffer.cursor(ErrorReporter).
+	public TokenBuffer tokenize() {
+		return tokenize(new TokenBuffer(_source, _names, (_limit - _pos) / 6), Integer.MAX_VALUE);
+	}
+
+	// Scans at most count more tokens into a buffer of their own, for a caller
+	//  that hands the input on in pieces; only the last piece ends with EOT
+	TokenBuffer tokenize(int count) {
+		return tokenize(new TokenBuffer(_source, _names, count), count);
+	}
+
+	private TokenBuffer tokenize(TokenBuffer tokens, int count) {
+		TokenType kind;
+
+		_tokens = tokens;
+
+		do {
+			kind = nextToken();
+			tokens.add(kind, _tokenStart, _pos - _tokenStart, _value);
+		} while (kind != TokenType.EOT && tokens.size() < count);
+
+		_tokens = null;
+		return tokens;
+	}
+
+	// Errors are reported where they are found and the scanner carries on with
+	//  whatever follows, so the Parser never sees an ERROR token and one pass
+	//  reports every lexical error. Once the ErrorReporter is full the input is
+	//  treated as ended.
+	TokenType nextToken() {
+		TokenType kind;
+		int checks = 0;
+
+		do {
+			ignoreSpace();
+			hold(checks, false);
+
+			_tokenStart = _pos;
+			_spelling = null;
+			_value = 0;
+
+			if (_errors.isFull()) {
+				eot = true;
+			}
+
+			kind = scanToken();
+			hold(++checks, kind == TokenType.ERROR);
+		} while (kind == TokenType.ERROR);
+
+		return kind;
+	}
+
+	// Holds the errors reported since the last call with the token being scanned,
+	//  after the given number of checks whether the reporter is full. One the
+	//  reporter had no room for is held as null.
+	private void hold(int checks, boolean dropped) {
+		int reported = _errors.getReportedCount();
+
+		if (_tokens != null) {
+			for (int i = _held; i < reported; i++) {
+				_tokens.hold(i < _errors.getErrorCount() ? _errors.getError(i) : null, checks, dropped);
+			}
 		}
 
-		ignoreSpace();
+		_held = reported;
+	}
+
+	// Where the token last returned by nextToken() lies in the source
+	int tokenStart() {
+		return _tokenStart;
+	}
 
-		_currentText = new StringBuilder();
-		TokenType kind = scanToken();
-		String spelling = _currentText.toString();
+	int tokenLength() {
+		return _pos - _tokenStart;
+	}
 
-		return makeToken(kind, spelling);
+	int tokenValue() {
+		return _value;
 	}
 
 	public TokenType scanToken() {
 		if (eot)
 			return(TokenType.EOT);
 
-		TokenType type = checkTokenType();
+		int charClass = CharClass.of(_currentChar);
+
+		if ((charClass & CharClass.DIGIT) != 0) {
+			return scanIntLiteral();
+		}
 
-		if (type != TokenType.NONE) {
-			return type;
+		if ((charClass & CharClass.OPERATOR_START) != 0) {
+			return checkTokenType();
 		}
 
 		return buildToken();
@@ -78,6 +189,7 @@ public class Scanner {
 					return TokenType.PLUS;
 				}
 
+				_tokenStart = _pos;
 				return scanToken();
 
 			case '-':
@@ -182,136 +294,191 @@ public class Scanner {
 				takeIt();
 				return TokenType.RBRACE;
 
-			case '0':
-			case '1':
-			case '2':
-			case '3':
-			case '4':
-			case '5':
-			case '6':
-			case '7':
-			case '8':
-			case '9':
-				while (isDigit(_currentChar))
-					takeIt();
-				return TokenType.INTLITERAL;
-
 			default:
 				return TokenType.NONE;
 		}
 	}
 
+	// Decodes the value while reading the digits. Past Integer.MAX_VALUE the
+	//  literal is reported and its value is held at Integer.MAX_VALUE.
+	private TokenType scanIntLiteral() {
+		long value = 0;
+
+		while ((CharClass.of(_currentChar) & CharClass.DIGIT) != 0) {
+			if (value <= Integer.MAX_VALUE) {
+				value = value * 10 + (_currentChar - '0');
+			}
+
+			takeIt();
+		}
+
+		if (value > Integer.MAX_VALUE) {
+			scanError("Integer literal " + _source.slice(_tokenStart, _pos - _tokenStart) + " is out of range");
+			value = Integer.MAX_VALUE;
+		}
+
+		_value = (int) value;
+		return TokenType.INTLITERAL;
+	}
+
 	private void takeIt() {
-		_currentText.append(_currentChar);
 		nextChar();
 	}
 
-	private void skipIt() {
-		if (!eot) {
-			nextChar();
-		}
+	// Reports m about the text of the token so far
+	private void scanError(String m) {
+		scanError(m, _tokenStart, _pos - _tokenStart);
 	}
 
-	private void scanError(String m) {
-		_errors.reportError("Scan Error:  " +  m);
+	private void scanError(String m, int start, int length) {
+		_errors.reportError("Scan Error:  " + m + " on " + _errors.describe(SourcePosition.make(start, length)));
 	}
 
 	private TokenType buildToken() {
-		while (!breakLoop() && !eot) {
-			if (_currentChar == '/' && _currentText.charAt(_currentText.length() - 1) == '/') {
-				ignoreSingleLineComment();
-			}
-			else if (_currentChar == '*' && _currentText.charAt(_currentText.length() - 1) == '/') {
-				ignoreMultiLineComment();
-			}
-			takeIt();
+		int start = _pos;
+
+		// Identifiers are interned straight from the buffer, keywords use the TokenMap spelling
+		while (!eot && (CharClass.of(_currentChar) & CharClass.DELIMITER) == 0) {
+			nextChar();
+		}
+
+		int keyword = TokenMap.keyword(_buf, start, _pos - start);
+
+		if (keyword >= 0) {
+			_spelling = TokenMap.spellingOf(keyword);
+			return TokenMap.typeOf(keyword);
 		}
 
-		TokenType type = this.TokenMap.getTokenType(_currentText.toString());
+		_spelling = _names.intern(_source, start, _pos - start);
 
-		if (type == TokenType.ID && !Character.isLetter(_currentText.charAt(0))) {
+		if ((CharClass.of((char) (_buf.get(start) & 0xFF)) & CharClass.LETTER) == 0) {
 			scanError("Invalid Identifier");
 
 			return TokenType.ERROR;
 		}
 
-		return type;
+		return TokenType.ID;
 	}
 
-	private void nextChar() {
+	private static SourceBuffer readStream( InputStream in, ErrorReporter errors ) {
 		try {
-			int c = _in.read();
-
-			_currentChar = (char)c;
-
-			if (c == -1) {
-				eot = true;
-			} else if (c < 0 ||c > 127) {
-				throw new IOException("Lexical Error");
-			}
-
-			if (c == 10) {
-				line += 1;
-			}
-
+			return SourceBuffer.fromStream(in);
 		} catch( IOException e ) {
-			_errors.reportError("Scan Error: " + e);
+			errors.reportError("Scan Error: " + e);
+			return SourceBuffer.fromBytes(new byte[0]);
 		}
 	}
 
-	private Token makeToken( TokenType toktype, String text ) {
-		return new Token(toktype, text, new SourcePosition(this.line));
+	private void nextChar() {
+		moveTo(_pos < _limit ? _pos + 1 : _limit);
 	}
 
-	private void ignoreSpace() {
-		while (!eot && (_currentChar == ' ' || _currentChar == eolUnix || _currentChar == eolWindows || _currentChar == tab)) {
-			skipIt();
+	// Makes the character at pos current, as if every character up to it had been
+	//  read with nextChar(). Callers that jump ahead account for the characters
+	//  they skipped themselves.
+	private void moveTo( int pos ) {
+		_pos = pos;
+
+		int c = _pos < _limit ? _buf.get(_pos) & 0xFF : -1;
+
+		_currentChar = (char)c;
+
+		if (c == -1) {
+			eot = true;
+		} else if (c > 127) {
+			lexicalError(_pos);
 		}
 	}
 
-	private void ignoreSingleLineComment() {
-		_currentText.deleteCharAt(_currentText.length() - 1);
+	// Reports the non-ASCII byte at pos, once for each character: the bytes that
+	//  continue a UTF-8 sequence belong to the error of the byte that starts it
+	private void lexicalError( int pos ) {
+		if ((_buf.get(pos) & 0xC0) == 0x80 && pos > 0 && _buf.get(pos - 1) < 0) {
+			return;
+		}
 
-		while (!eot && (_currentChar != eolUnix && _currentChar != eolWindows)) {
-			skipIt();
+		int end = pos + 1;
+
+		while (end < _limit && end - pos < 4 && (_buf.get(end) & 0xC0) == 0x80) {
+			end++;
 		}
 
-		ignoreSpace();
+		scanError("Lexical Error, non-ASCII character", pos, end - pos);
 	}
 
-	private void ignoreMultiLineComment() {
-		int deleteStart = _currentText.length() - 1;
+	// The skipping below runs straight over the buffer instead of going through
+	//  nextChar() for every character; non-ASCII bytes on the way are reported
+	//  exactly as nextChar() would have.
+	private void ignoreSpace() {
+		if (eot || (CharClass.of(_currentChar) & CharClass.WHITESPACE) == 0) {
+			return;
+		}
 
-		skipIt();
+		int p = _pos + 1;
 
-		while (!eot && (_currentChar != '/' || _currentText.charAt(_currentText.length() - 1) != '*')) {
-			takeIt();
+		while (p < _limit) {
+			byte b = _buf.get(p);
+
+			if (b < 0 || (CharClass.of((char) b) & CharClass.WHITESPACE) == 0) {
+				break;
+			}
+
+			p++;
 		}
 
+		moveTo(p);
+	}
+
+	private void ignoreSingleLineComment() {
 		if (eot) {
-			_errors.reportError("Invalid multi-line comment");
+			return;
 		}
 
-		skipIt();
+		int p = _pos + 1;
+
+		while (p < _limit) {
+			byte b = _buf.get(p);
+
+			if (b == eolUnix || b == eolWindows) {
+				break;
+			} else if (b < 0) {
+				lexicalError(p);
+			}
+
+			p++;
+		}
 
-		_currentText.delete(deleteStart, _currentText.length());
+		moveTo(p);
 
 		ignoreSpace();
 	}
 
-	private boolean isDigit(char c) {
-		return (c >= '0') && (c <= '9');
-	}
+	// The current character is the '*' of the opening "/*", which cannot also be
+	//  the '*' of the closing "*/"
+	private void ignoreMultiLineComment() {
+		int p = _pos + 1;
+		byte previous = 0;
 
-	private boolean breakLoop() {
-		char[] breakChars = { ' ', '\n', '\r', '\t', '+', '-', '*', '/', '<', '>', '=', '!', '(', ')', '[', ']', '{', '}', ';', ',', '.' };
+		while (p < _limit) {
+			byte b = _buf.get(p);
 
-		for (char c : breakChars) {
-			if (c == _currentChar) {
-				return true;
+			if (b == '/' && previous == '*') {
+				break;
+			} else if (b < 0) {
+				lexicalError(p);
 			}
+
+			previous = b;
+			p++;
 		}
 
-		return false;
+		if (p < _limit) {
+			moveTo(p + 1);
+		} else {
+			moveTo(_limit);
+			scanError("Invalid multi-line comment");
+		}
+
+		ignoreSpace();
 	}
 }
@@ -0,0 +1,125 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// The raw bytes of one source file. Files are memory-mapped, streams are drained
+//  into a single growable array and in-memory sources are wrapped as they are.
+//  Either way the Scanner indexes the same ByteBuffer directly, so there is
+//  no per-character read() call between the scanner and the input.
+public final class SourceBuffer {
+	private static final int STREAM_CHUNK = 1 << 16;
+
+	private final ByteBuffer _bytes;
+	private final int _length;
+
+	private SourceBuffer(ByteBuffer bytes) {
+		this._bytes = bytes;
+		this._length = bytes.limit();
+	}
+
+	public static SourceBuffer fromFile(String fileName) throws IOException {
+		Path path = Paths.get(fileName);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(fileName + " is too large to compile");
+			}
+
+			return new SourceBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	public static SourceBuffer fromStream(InputStream in) throws IOException {
+		byte[] data = new byte[Math.max(in.available() + 1, STREAM_CHUNK)];
+		int length = 0;
+		int read;
+
+		while ((read = in.read(data, length, data.length - length)) != -1) {
+			length += read;
+
+			if (length == data.length) {
+				byte[] grown = new byte[data.length * 2];
+				System.arraycopy(data, 0, grown, 0, length);
+				data = grown;
+			}
+		}
+
+		return new SourceBuffer(ByteBuffer.wrap(data, 0, length).slice());
+	}
+
+	public static SourceBuffer fromBytes(byte[] data) {
+		return new SourceBuffer(ByteBuffer.wrap(data));
+	}
+
+	public static SourceBuffer fromString(String text) {
+		return fromBytes(text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	// A new buffer with length bytes at offset replaced by the inserted text.
+	//  This buffer is left as it is.
+	public SourceBuffer edit(int offset, int length, String inserted) {
+		byte[] text = inserted.getBytes(StandardCharsets.US_ASCII);
+		byte[] data = new byte[_length - length + text.length];
+		ByteBuffer view = _bytes.duplicate();
+
+		view.position(0);
+		view.get(data, 0, offset);
+		System.arraycopy(text, 0, data, offset, text.length);
+		view.position(offset + length);
+		view.get(data, offset + text.length, _length - offset - length);
+
+		return fromBytes(data);
+	}
+
+	public int length() {
+		return _length;
+	}
+
+	public String slice(int start, int length) {
+		byte[] text = new byte[length];
+		ByteBuffer view = _bytes.duplicate();
+
+		view.position(start);
+		view.get(text);
+
+		return new String(text, StandardCharsets.ISO_8859_1);
+	}
+
+	// SHA-256 of the bytes in hex, which names the content rather than the file
+	public String contentHash() {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+
+		ByteBuffer view = _bytes.duplicate();
+		view.position(0);
+		digest.update(view);
+
+		StringBuilder hex = new StringBuilder();
+
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+
+	ByteBuffer bytes() {
+		return _bytes;
+	}
+}
@@ -1,14 +1,62 @@
 package miniJava.SyntacticAnalyzer;
 
-public class SourcePosition {
-    int _line;
+// Source positions are packed into a single long so that tokens and AST nodes
+//  can hold them without an extra object:
+//
+//   bit 63      always 0, so NONE (-1) can never collide with a real position
+//   bits 62-32  start offset in the source buffer
+//   bits 31-0   length of the span in bytes
+//
+// Both fit any source a SourceBuffer can hold, so no span is ever cut short.
+//  Lines and columns are not stored at all: a LineMap derives them from the
+//  offset when a diagnostic needs them, see ErrorReporter.describe().
+public final class SourcePosition {
+    public static final long NONE = -1L;
 
-    public SourcePosition(int line) {
-        _line = line;
+    private static final long LENGTH_MASK = 0xFFFFFFFFL;
+
+    private SourcePosition() {}
+
+    public static long make(int offset, int length) {
+        return ((long) offset << 32) | (length & LENGTH_MASK);
+    }
+
+    public static int offset(long posn) {
+        return (int) (posn >>> 32);
+    }
+
+    public static int length(long posn) {
+        return (int) posn;
+    }
+
+    public static int end(long posn) {
+        return offset(posn) + length(posn);
+    }
+
+    // The span from the start of first to the end of last
+    public static long span(long first, long last) {
+        if (first == NONE) {
+            return last;
+        }
+
+        if (last == NONE || end(last) <= offset(first)) {
+            return first;
+        }
+
+        return make(offset(first), end(last) - offset(first));
+    }
+
+    // The same span, offsetDelta bytes further on
+    public static long move(long posn, int offsetDelta) {
+        if (posn == NONE) {
+            return NONE;
+        }
+
+        return make(offset(posn) + offsetDelta, length(posn));
     }
 
-    @Override
-    public String toString() {
-        return "Line: " + _line;
+    // The span in bytes, for where no LineMap of the source is at hand
+    public static String toString(long posn) {
+        return "Offset: " + offset(posn) + ", Length: " + length(posn);
     }
-}
\ No newline at end of file
+}
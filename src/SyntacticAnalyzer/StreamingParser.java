@@ -0,0 +1,107 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.ClassDeclList;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.AbstractSyntaxTrees.StatementList;
+import miniJava.AbstractSyntaxTrees.Types;
+
+// Parses a program in two passes over its source, so that later phases can start
+//  on a class before the rest of the program has been parsed.
+//
+// The first pass scans and parses class heads alone: fields and method
+//  signatures, with every method body skipped by counting braces, which leaves
+//  its MethodDecl with an empty StatementList. That is all other classes need to
+//  know of a class, and a small part of the work. No token is kept, only where
+//  each body lies in the source. The second pass scans and parses the bodies of
+//  one class into those MethodDecls, from just their part of the source, and can
+//  run on any thread for any class once the first pass is done. releaseBodies()
+//  takes them out again, so only the tokens and bodies of the classes in flight
+//  need to be in memory.
+//
+// Errors are reported, but no attempt is made to give the diagnostics of a
+//  sequential parse; a caller that sees any should parse the program again with
+//  a Parser of its own.
+public final class StreamingParser {
+	private final SourceBuffer _source;
+	private final Types _types;
+	// Source ranges of the method bodies of every class, in the order of its methods
+	private final Map<ClassDecl, List<int[]>> _bodies = new HashMap<ClassDecl, List<int[]>>();
+
+	public StreamingParser(SourceBuffer source, Types types) {
+		this._source = source;
+		this._types = types;
+	}
+
+	// Parses the heads of all classes, handing each one to declared as soon as it
+	//  is complete. Returns null after any error.
+	public Package parseHeads(ErrorReporter errors, Consumer<ClassDecl> declared) {
+		List<int[]> bodies = new ArrayList<int[]>();
+		Scanner scanner = new Scanner(_source, errors, new NameTable());
+		// The first token and the last one before EOT, for the span of the program
+		long[] span = { SourcePosition.NONE, SourcePosition.NONE };
+		Parser parser = new Parser(() -> {
+			Token token = scanner.scan();
+
+			if (span[0] == SourcePosition.NONE) {
+				span[0] = token.getTokenPosition();
+			}
+
+			if (token.getTokenType() != TokenType.EOT) {
+				span[1] = token.getTokenPosition();
+			}
+
+			return token;
+		}, errors, _types, bodies);
+		ClassDeclList classList = new ClassDeclList();
+		ClassDecl decl;
+
+		while ((decl = parser.parseNextClass()) != null && !errors.hasErrors()) {
+			_bodies.put(decl, new ArrayList<int[]>(bodies));
+			bodies.clear();
+			classList.add(decl);
+			declared.accept(decl);
+		}
+
+		if (errors.hasErrors()) {
+			return null;
+		}
+
+		return new Package(classList, SourcePosition.span(span[0], span[1] != SourcePosition.NONE ? span[1] : span[0]), _types);
+	}
+
+	// Parses the method bodies of a class that parseHeads() returned, or returns
+	//  false if any of them does not parse. Bodies of different classes can be
+	//  parsed at the same time.
+	public boolean parseBodies(ClassDecl decl, ErrorReporter errors) {
+		List<int[]> bodies = _bodies.get(decl);
+		// Names are canonical JVM-wide, so a table per class still gives shared strings
+		NameTable names = new NameTable();
+
+		for (int m = 0; m < bodies.size(); m++) {
+			int[] range = bodies.get(m);
+			Parser parser = new Parser(new Scanner(_source, errors, names, range[0], range[1]), errors, _types);
+
+			if (!parser.parseBody(decl.methodDeclList.get(m)) || errors.hasErrors()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Drops the statements parseBodies() added, once nothing needs them anymore
+	public void releaseBodies(ClassDecl decl) {
+		for (MethodDecl method : decl.methodDeclList) {
+			method.statementList = new StatementList();
+		}
+	}
+}
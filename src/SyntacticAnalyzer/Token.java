@@ -3,13 +3,19 @@ package miniJava.SyntacticAnalyzer;
 public class Token {
 	private TokenType _type;
 	private String _text;
-	private SourcePosition _position;
+	private long _position;
+	private int _value;
 
-	public Token(TokenType type, String text, SourcePosition position) {
+	public Token(TokenType type, String text, long position) {
+		this(type, text, position, 0);
+	}
+
+	public Token(TokenType type, String text, long position, int value) {
 		// TODO: Store the token's type and text
 		this._type = type;
 		this._text = text;
 		this._position = position;
+		this._value = value;
 	}
 
 	public TokenType getTokenType() {
@@ -22,7 +28,12 @@ public class Token {
 		return _text;
 	}
 
-	public SourcePosition getTokenPosition() {
+	public long getTokenPosition() {
 		return _position;
 	}
+
+	// The decoded value of an INTLITERAL, 0 for every other kind of token
+	public int getTokenValue() {
+		return _value;
+	}
 }
@@ -0,0 +1,264 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import miniJava.ErrorReporter;
+
+// A whole token stream in packed form: four ints per token (kind, start offset,
+//  length and literal value) in one growable array. Token text is not stored; it is sliced
+//  from the source buffer, through the NameTable, only when somebody asks for it.
+//
+// The scan errors found while the Scanner filled it are kept as well, each with
+//  the token it was found on, so that a parse from the buffer can still report
+//  them in the order a parse pulling from the Scanner would have.
+public final class TokenBuffer {
+	private static final TokenType[] KINDS = TokenType.values();
+
+	private static final int KIND = 0;
+	private static final int START = 1;
+	private static final int LENGTH = 2;
+	private static final int VALUE = 3;
+	private static final int STRIDE = 4;
+
+	private final SourceBuffer _source;
+	private final NameTable _names;
+	private int[] _data;
+	private int _count;
+
+	// Per held error its message, the token it was found on, and how many times
+	//  Scanner.nextToken() had checked for a full reporter on that token, shifted
+	//  left once, with the low bit set if the error dropped what was scanned. The
+	//  message is null for an error the Scanner's reporter had no room for; a
+	//  parse from the buffer has had at least as many errors by then, so it has
+	//  no room for it either and only counts it.
+	private final List<String> _heldErrors = new ArrayList<String>();
+	private final List<Integer> _heldTokens = new ArrayList<Integer>();
+	private final List<Integer> _heldChecks = new ArrayList<Integer>();
+
+	public TokenBuffer(SourceBuffer source, NameTable names) {
+		// Roughly one token per six bytes of source, so most inputs never regrow
+		this(source, names, source.length() / 6);
+	}
+
+	TokenBuffer(SourceBuffer source, NameTable names, int capacity) {
+		this._source = source;
+		this._names = names;
+		this._data = new int[STRIDE * Math.max(64, capacity)];
+	}
+
+	void add(TokenType kind, int start, int length, int value) {
+		if ((_count + 1) * STRIDE > _data.length) {
+			int[] grown = new int[_data.length * 2];
+			System.arraycopy(_data, 0, grown, 0, _count * STRIDE);
+			_data = grown;
+		}
+
+		int base = _count * STRIDE;
+		_data[base + KIND] = kind.ordinal();
+		_data[base + START] = start;
+		_data[base + LENGTH] = length;
+		_data[base + VALUE] = value;
+		_count++;
+	}
+
+	// Holds an error found on the entry that is added next
+	void hold(String error, int checks, boolean dropped) {
+		_heldErrors.add(error);
+		_heldTokens.add(_count);
+		_heldChecks.add(checks << 1 | (dropped ? 1 : 0));
+	}
+
+	// Appends a piece of the source that a Scanner tokenized from where the one
+	//  of the piece before ended, with the errors held as one Scanner over both
+	//  pieces would have held them. Only the EOT of the last piece is kept; the
+	//  errors of any other go with the first entry of the next piece, which was
+	//  scanned in the same call of Scanner.nextToken() as those errors. That only
+	//  holds if the scan of the piece before ended outside of a comment, at the
+	//  start of that call, and so did not check for a full reporter once more.
+	void addPiece(TokenBuffer piece, boolean last) {
+		int end = last ? piece._count : piece._count - 1;
+		// The checks the errors carried over from the piece before had made
+		int carried = 0;
+
+		for (int e = _heldTokens.size() - 1; e >= 0 && _heldTokens.get(e) == _count; e--) {
+			carried = Math.max(carried, _heldChecks.get(e) >> 1);
+		}
+
+		for (int e = 0; e < piece._heldErrors.size(); e++) {
+			int token = piece._heldTokens.get(e);
+
+			_heldErrors.add(piece._heldErrors.get(e));
+			_heldTokens.add(_count + token);
+			_heldChecks.add(token == 0 ? piece._heldChecks.get(e) + (carried << 1) : piece._heldChecks.get(e));
+		}
+
+		addShifted(piece, 0, end, 0);
+	}
+
+	// Appends entries [first, last) of another buffer, moved by offsetDelta bytes
+	void addShifted(TokenBuffer from, int first, int last, int offsetDelta) {
+		int count = last - first;
+
+		if ((_count + count) * STRIDE > _data.length) {
+			int[] grown = new int[Math.max(_data.length * 2, (_count + count) * STRIDE)];
+			System.arraycopy(_data, 0, grown, 0, _count * STRIDE);
+			_data = grown;
+		}
+
+		System.arraycopy(from._data, first * STRIDE, _data, _count * STRIDE, count * STRIDE);
+
+		if (offsetDelta != 0) {
+			for (int i = _count; i < _count + count; i++) {
+				_data[i * STRIDE + START] += offsetDelta;
+			}
+		}
+
+		_count += count;
+	}
+
+	// Index of the entry that starts exactly at offset, or -1 if none does
+	int indexAt(int offset) {
+		int low = 0;
+		int high = _count - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int start = start(mid);
+
+			if (start < offset) {
+				low = mid + 1;
+			} else if (start > offset) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -1;
+	}
+
+	public int size() {
+		return _count;
+	}
+
+	NameTable names() {
+		return _names;
+	}
+
+	public SourceBuffer source() {
+		return _source;
+	}
+
+	public TokenType kind(int i) {
+		return KINDS[_data[i * STRIDE + KIND]];
+	}
+
+	public int start(int i) {
+		return _data[i * STRIDE + START];
+	}
+
+	public int length(int i) {
+		return _data[i * STRIDE + LENGTH];
+	}
+
+	public int value(int i) {
+		return _data[i * STRIDE + VALUE];
+	}
+
+	public String text(int i) {
+		return _names.intern(_source, start(i), length(i));
+	}
+
+	public Token token(int i) {
+		return new Token(kind(i), text(i), SourcePosition.make(start(i), length(i)), value(i));
+	}
+
+	public Cursor cursor() {
+		return new Cursor(0, _count - 1, _names, token(_count - 1), null);
+	}
+
+	// A cursor that also reports every held error into errors as the token it was
+	//  found on is handed out. Like a Scanner it ends the input once errors is
+	//  full, so a parse from it reports exactly what a parse from the Scanner
+	//  that filled this buffer would have, without scanning the source again.
+	public Cursor cursor(ErrorReporter errors) {
+		return new Cursor(0, _count - 1, _names, token(_count - 1), errors);
+	}
+
+	// A cursor over every entry, the last one included, of a buffer that holds a
+	//  piece of a token stream, see PipelinedScanner; past it there is no EOT
+	Cursor pieceCursor(NameTable names, ErrorReporter errors) {
+		return new Cursor(0, _count, names, null, errors);
+	}
+
+	// A cursor over tokens [from, to) alone, which ends in an EOT at the start of
+	//  token to. Text is interned through names, so cursors on different threads
+	//  can each bring a table of their own.
+	Cursor cursor(int from, int to, NameTable names) {
+		long end = SourcePosition.make(start(to), 0);
+
+		return new Cursor(from, to, names, new Token(TokenType.EOT, "", end), null);
+	}
+
+	// Feeds the buffered tokens to a Parser one at a time, materializing each
+	//  Token only as it is consumed.
+	public final class Cursor implements TokenSource {
+		private final NameTable _cursorNames;
+		private final ErrorReporter _errors;
+		private final int _end;
+		private Token _eot;
+		private int _index;
+		private int _nextHeld;
+		private boolean _ended;
+
+		private Cursor(int from, int end, NameTable names, Token eot, ErrorReporter errors) {
+			this._index = from;
+			this._end = end;
+			this._cursorNames = names;
+			this._eot = eot;
+			this._errors = errors;
+		}
+
+		public Token scan() {
+			if (_ended || _errors != null && !report() || _index >= _end) {
+				_ended = true;
+				return _eot;
+			}
+
+			int i = _index++;
+
+			return new Token(kind(i), _cursorNames.intern(_source, start(i), length(i)),
+					SourcePosition.make(start(i), length(i)), value(i));
+		}
+
+		// Index of the token the next scan() will return
+		public int index() {
+			return _index;
+		}
+
+		// Reports the errors held with the next token, EOT included, between the
+		//  same checks for a full reporter that Scanner.nextToken() made while
+		//  scanning it, or returns false where one of those checks ended the input
+		private boolean report() {
+			for (int checks = 0; ; checks++) {
+				boolean dropped = false;
+
+				while (_nextHeld < _heldErrors.size() && _heldTokens.get(_nextHeld) == _index
+						&& _heldChecks.get(_nextHeld) >> 1 == checks) {
+					dropped |= (_heldChecks.get(_nextHeld) & 1) != 0;
+					_errors.reportError(_heldErrors.get(_nextHeld++));
+				}
+
+				if (checks > 0 && !dropped) {
+					return true;
+				}
+
+				if (_errors.isFull()) {
+					_eot = new Token(TokenType.EOT, "", SourcePosition.make(start(_index), 0));
+					return false;
+				}
+			}
+		}
+	}
+}
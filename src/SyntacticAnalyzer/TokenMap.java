@@ -1,36 +1,109 @@
 package miniJava.SyntacticAnalyzer;
-import java.util.HashMap;
-import java.util.Map;
 
+import java.nio.ByteBuffer;
+
+// Keyword recognition straight off the source bytes. A word is narrowed to at most
+//  one candidate keyword by its length and first character, and only that candidate
+//  is compared, so deciding keyword versus identifier never needs a String.
 public class TokenMap {
-    private Map<String, TokenType> map;
-
-    public TokenMap() {
-        map = new HashMap<>();
-
-        map.put("private", TokenType.VISIBILITY);
-        map.put("public", TokenType.VISIBILITY);
-        map.put("static", TokenType.ACCESS);
-        map.put("class", TokenType.CLASS);
-        map.put("void", TokenType.VOID);
-        map.put("this", TokenType.THIS);
-        map.put("return", TokenType.RETURN);
-        map.put("new", TokenType.NEW);
-        map.put("int", TokenType.INT);
-        map.put("boolean", TokenType.BOOLEAN);
-        map.put("if", TokenType.IF );
-        map.put("else", TokenType.ELSE);
-        map.put("while", TokenType.WHILE);
-        map.put("true", TokenType.TRUE);
-        map.put("false", TokenType.FALSE);
-        map.put("null", TokenType.NULL);
-    }
+    private static final int PRIVATE = 0;
+    private static final int PUBLIC = 1;
+    private static final int STATIC = 2;
+    private static final int CLASS = 3;
+    private static final int VOID = 4;
+    private static final int THIS = 5;
+    private static final int RETURN = 6;
+    private static final int NEW = 7;
+    private static final int INT = 8;
+    private static final int BOOLEAN = 9;
+    private static final int IF = 10;
+    private static final int ELSE = 11;
+    private static final int WHILE = 12;
+    private static final int TRUE = 13;
+    private static final int FALSE = 14;
+    private static final int NULL = 15;
+
+    private static final String[] SPELLINGS = {
+            "private", "public", "static", "class", "void", "this", "return", "new",
+            "int", "boolean", "if", "else", "while", "true", "false", "null"
+    };
+
+    private static final TokenType[] TYPES = {
+            TokenType.VISIBILITY, TokenType.VISIBILITY, TokenType.ACCESS, TokenType.CLASS,
+            TokenType.VOID, TokenType.THIS, TokenType.RETURN, TokenType.NEW,
+            TokenType.INT, TokenType.BOOLEAN, TokenType.IF, TokenType.ELSE,
+            TokenType.WHILE, TokenType.TRUE, TokenType.FALSE, TokenType.NULL
+    };
+
+    private TokenMap() {}
+
+    // Returns the keyword index of buf[start, start + length), or -1 for an identifier
+    public static int keyword(ByteBuffer buf, int start, int length) {
+        int k = candidate(buf, start, length);
 
-    public TokenType getTokenType(String s) {
-        if (map.containsKey(s)) {
-            return map.get(s);
+        if (k < 0) {
+            return -1;
         }
 
-        return TokenType.ID;
+        String spelling = SPELLINGS[k];
+
+        for (int i = 1; i < length; i++) {
+            if (buf.get(start + i) != spelling.charAt(i)) {
+                return -1;
+            }
+        }
+
+        return k;
+    }
+
+    public static TokenType typeOf(int keyword) {
+        return keyword < 0 ? TokenType.ID : TYPES[keyword];
+    }
+
+    public static String spellingOf(int keyword) {
+        return SPELLINGS[keyword];
+    }
+
+    private static int candidate(ByteBuffer buf, int start, int length) {
+        byte first = buf.get(start);
+
+        switch (length) {
+            case 2:
+                return first == 'i' ? IF : -1;
+
+            case 3:
+                return first == 'n' ? NEW : first == 'i' ? INT : -1;
+
+            case 4:
+                switch (first) {
+                    case 'v': return VOID;
+                    case 'e': return ELSE;
+                    case 'n': return NULL;
+                    case 't': return buf.get(start + 1) == 'h' ? THIS : TRUE;
+                    default: return -1;
+                }
+
+            case 5:
+                switch (first) {
+                    case 'c': return CLASS;
+                    case 'w': return WHILE;
+                    case 'f': return FALSE;
+                    default: return -1;
+                }
+
+            case 6:
+                switch (first) {
+                    case 'p': return PUBLIC;
+                    case 's': return STATIC;
+                    case 'r': return RETURN;
+                    default: return -1;
+                }
+
+            case 7:
+                return first == 'p' ? PRIVATE : first == 'b' ? BOOLEAN : -1;
+
+            default:
+                return -1;
+        }
     }
-}
\ No newline at end of file
+}
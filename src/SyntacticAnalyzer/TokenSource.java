@@ -0,0 +1,8 @@
+package miniJava.SyntacticAnalyzer;
+
+// Anything the Parser can pull tokens from: the Scanner itself, or a cursor
+//  over tokens that were scanned ahead of time into a TokenBuffer.
+public interface TokenSource {
+	// Returns the next token, and keeps returning EOT once the input is exhausted
+	Token scan();
+}